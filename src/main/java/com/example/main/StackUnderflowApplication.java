@@ -1,12 +1,37 @@
 package com.example.main;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Arrays;
 
 @SpringBootApplication
+@EnableScheduling
 public class StackUnderflowApplication {
 	public static void main(String[] args) {
+		// "import <dump directory> [options]" loads a Stack Exchange data dump instead of serving requests
+		if (args.length >= 2 && "import".equals(args[0])) {
+			String[] options = Arrays.copyOf(Arrays.copyOfRange(args, 2, args.length), args.length - 1);
+			options[options.length - 1] = "--stackunderflow.import.dir=" + args[1];
+			runTool(options);
+			return;
+		}
+		// "generate [options]" fills the database (or CSV files) with a synthetic dataset
+		if (args.length >= 1 && "generate".equals(args[0])) {
+			String[] options = Arrays.copyOf(args, args.length);
+			options[0] = "--stackunderflow.generate.enabled=true";
+			runTool(options);
+			return;
+		}
 		SpringApplication.run(StackUnderflowApplication.class, args);
 	}
+
+	private static void runTool(String[] options) {
+		SpringApplication application = new SpringApplication(StackUnderflowApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		application.run(options);
+	}
 }
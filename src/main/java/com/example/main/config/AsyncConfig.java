@@ -0,0 +1,53 @@
+package com.example.main.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+    
+    @Value("${stackunderflow.events.queue-capacity:10000}")
+    private int queueCapacity;
+    
+    @Value("${stackunderflow.events.enqueue-timeout-ms:1000}")
+    private long enqueueTimeoutMs;
+    
+    // Question change listeners that read the database (search index, suggestions, tag filter) run
+    // here once the publishing transaction has committed. On the request thread they would need a
+    // second pooled connection while the first is still held, so enough concurrent writes starved
+    // the pool. A single thread applies the updates in the order they were published.
+    // The queue is bounded; listeners filter and coalesce (votes) before queueing, so it only fills up
+    // when the thread falls far behind. A full queue holds up publishers for a while rather than
+    // running the task on their thread, which would take that second connection again; an update
+    // still not queued after that is dropped, and the search index catches up on its next start.
+    @Bean
+    public ThreadPoolTaskExecutor questionEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            try {
+                if (pool.isShutdown() || !pool.getQueue().offer(task, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Question event queue full, dropping an update");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.setThreadNamePrefix("question-events-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+} 
\ No newline at end of file
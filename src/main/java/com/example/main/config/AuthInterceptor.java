@@ -1,7 +1,6 @@
 package com.example.main.config;
 
-import com.example.main.dto.UserDto;
-import com.example.main.service.UserService;
+import com.example.main.service.BanStatusService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +11,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 public class AuthInterceptor implements HandlerInterceptor {
     
     @Autowired
-    private UserService userService;
+    private BanStatusService banStatusService;
     
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -28,7 +27,7 @@ public class AuthInterceptor implements HandlerInterceptor {
         // Check if user is banned
         if (userId != null) {
             Long userIdLong = Long.parseLong(userId);
-            if (userService.getUserById(userIdLong).map(UserDto::isBanned).orElse(false)) {
+            if (banStatusService.isBanned(userIdLong)) {
                 response.setStatus(HttpServletResponse.SC_FORBIDDEN);
                 response.getWriter().write("Your account has been banned");
                 return false;
@@ -0,0 +1,52 @@
+package com.example.main.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Questions, answers, votes and ledger entries take their ids from the pooled id_sequences table
+// instead of AUTO_INCREMENT. Before the first insert each counter is moved past the highest existing id (plus
+// one allocation block, since the pooled optimizer hands out the block below the stored value), so
+// rows created under the old identity columns are never reused.
+@Component
+public class IdSequenceInitializer {
+    
+    private static final int ALLOCATION_SIZE = 50;
+    
+    // sequence name, table, id column
+    private static final String[][] SEQUENCES = {
+        {"questions", "questions", "question_id"},
+        {"answers", "answers", "answer_id"},
+        {"votes", "votes", "vote_id"},
+        {"reputation_ledger", "reputation_ledger", "entry_id"}
+    };
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Injected so the schema (including id_sequences) exists before this runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @PostConstruct
+    public void alignSequences() {
+        for (String[] sequence : SEQUENCES) {
+            String name = sequence[0];
+            try {
+                jdbcTemplate.update("INSERT INTO id_sequences (sequence_name, next_val) VALUES (?, 1)", name);
+            } catch (DuplicateKeyException e) {
+                // Already there
+            }
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(" + sequence[2] + ") FROM " + sequence[1], Long.class);
+            if (maxId != null) {
+                // Only ever raises the counter, so concurrent starts are harmless
+                jdbcTemplate.update("UPDATE id_sequences SET next_val = GREATEST(next_val, ?) WHERE sequence_name = ?",
+                        maxId + ALLOCATION_SIZE + 1, name);
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.main.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+// users.score became fixed point (DECIMAL(19,2)). ddl-auto=update only adds missing columns and never
+// changes the type of an existing one, so databases created before that still have the old
+// single-precision float column, which is binary floating point and would not add up exactly against
+// the ledger's decimal deltas. This converts it once.
+// Rounding to two decimals loses nothing: every score delta ever applied (2.5, -1.5, 5, -2.5) is a
+// multiple of 0.5, and a float holds those exactly up to 2^23, so existing values carry over unchanged.
+@Component
+public class ScoreColumnMigration {
+    
+    private static final Logger log = LoggerFactory.getLogger(ScoreColumnMigration.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Injected so the schema exists before this runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @PostConstruct
+    public void migrate() {
+        Integer type = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // Identifier case depends on the database, so try both
+            for (String[] names : new String[][] {{"users", "score"}, {"USERS", "SCORE"}}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, names[0], names[1])) {
+                    if (columns.next()) {
+                        return columns.getInt("DATA_TYPE");
+                    }
+                }
+            }
+            return null;
+        });
+        if (type == null || type == Types.DECIMAL || type == Types.NUMERIC) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE users MODIFY score DECIMAL(19,2) NOT NULL DEFAULT 0");
+        log.info("Converted users.score to DECIMAL(19,2)");
+    }
+} 
\ No newline at end of file
@@ -2,14 +2,18 @@ package com.example.main.controller;
 
 import com.example.main.dto.AnswerDto;
 import com.example.main.service.AnswerService;
-import com.example.main.service.UserService;
+import com.example.main.service.AuthorizationService;
+import com.example.main.service.QuestionVersionService;
+import com.example.main.service.QuestionVersionService.VersionStamp;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/answers")
@@ -19,7 +23,10 @@ public class AnswerController {
     private AnswerService answerService;
     
     @Autowired
-    private UserService userService;
+    private AuthorizationService authorizationService;
+    
+    @Autowired
+    private QuestionVersionService questionVersionService;
     
     @GetMapping
     public ResponseEntity<List<AnswerDto>> getAllAnswers() {
@@ -33,9 +40,18 @@ public class AnswerController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // Answers share the question's version stamp; a null return means the 304 is already set up
     @GetMapping("/question/{questionId}")
-    public ResponseEntity<List<AnswerDto>> getAnswersByQuestion(@PathVariable Long questionId) {
-        return ResponseEntity.ok(answerService.getAnswersByQuestion(questionId));
+    public ResponseEntity<List<AnswerDto>> getAnswersByQuestion(@PathVariable Long questionId, WebRequest request) {
+        Optional<VersionStamp> version = questionVersionService.getVersion(questionId);
+        if (version.isEmpty()) {
+            return ResponseEntity.ok(answerService.getAnswersByQuestion(questionId));
+        }
+        if (request.checkNotModified(version.get().etag("a"), version.get().lastModifiedMillis())) {
+            return null;
+        }
+        // Loaded under the same stamp the ETag came from
+        return ResponseEntity.ok(answerService.getAnswersByQuestion(questionId, version.get()));
     }
     
     @GetMapping("/author/{authorId}")
@@ -69,7 +85,7 @@ public class AnswerController {
             @RequestHeader("User-Id") Long userId) {
         
         // Check if user is the author or a moderator
-        if (!isAuthorOrModerator(id, userId)) {
+        if (!authorizationService.isAnswerAuthorOrModerator(id, userId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -87,7 +103,7 @@ public class AnswerController {
             @RequestHeader("User-Id") Long userId) {
         
         // Check if user is the author or a moderator
-        if (!isAuthorOrModerator(id, userId)) {
+        if (!authorizationService.isAnswerAuthorOrModerator(id, userId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -97,10 +113,4 @@ public class AnswerController {
             return ResponseEntity.notFound().build();
         }
     }
-    
-    private boolean isAuthorOrModerator(Long answerId, Long userId) {
-        return answerService.getAnswerById(answerId)
-                .map(a -> a.getAuthorId().equals(userId) || userService.isModerator(userId))
-                .orElse(false);
-    }
 } 
\ No newline at end of file
@@ -3,8 +3,9 @@ package com.example.main.controller;
 import com.example.main.dto.AnswerDto;
 import com.example.main.dto.QuestionDto;
 import com.example.main.service.AnswerService;
+import com.example.main.service.AuthorizationService;
+import com.example.main.service.QuestionSearchService;
 import com.example.main.service.QuestionService;
-import com.example.main.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,7 +18,7 @@ import java.util.Map;
 public class ModeratorController {
     
     @Autowired
-    private UserService userService;
+    private AuthorizationService authorizationService;
     
     @Autowired
     private QuestionService questionService;
@@ -25,6 +26,9 @@ public class ModeratorController {
     @Autowired
     private AnswerService answerService;
     
+    @Autowired
+    private QuestionSearchService questionSearchService;
+    
     // Moderator can edit any question
     @PutMapping("/questions/{id}")
     public ResponseEntity<QuestionDto> editQuestion(
@@ -32,7 +36,7 @@ public class ModeratorController {
             @RequestBody Map<String, String> payload,
             @RequestHeader("Moderator-Id") Long moderatorId) {
         
-        if (!userService.isModerator(moderatorId)) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -53,7 +57,7 @@ public class ModeratorController {
             @PathVariable Long id,
             @RequestHeader("Moderator-Id") Long moderatorId) {
         
-        if (!userService.isModerator(moderatorId)) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -71,7 +75,7 @@ public class ModeratorController {
             @RequestBody Map<String, String> payload,
             @RequestHeader("Moderator-Id") Long moderatorId) {
         
-        if (!userService.isModerator(moderatorId)) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -89,7 +93,7 @@ public class ModeratorController {
             @PathVariable Long id,
             @RequestHeader("Moderator-Id") Long moderatorId) {
         
-        if (!userService.isModerator(moderatorId)) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -99,4 +103,19 @@ public class ModeratorController {
             return ResponseEntity.notFound().build();
         }
     }
+    
+    // Rebuilds the search index from the database in the background
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Void> rebuildSearchIndex(@RequestHeader("Moderator-Id") Long moderatorId) {
+        
+        if (!authorizationService.isModerator(moderatorId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        if (questionSearchService.startRebuild()) {
+            return ResponseEntity.accepted().build();
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 } 
\ No newline at end of file
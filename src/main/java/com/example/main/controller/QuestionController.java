@@ -1,15 +1,27 @@
 package com.example.main.controller;
 
+import com.example.main.dto.PageCursor;
+import com.example.main.dto.PageDto;
 import com.example.main.dto.QuestionDto;
+import com.example.main.dto.QuestionPageDto;
+import com.example.main.dto.QuestionSummaryDto;
+import com.example.main.service.AuthorizationService;
+import com.example.main.service.QuestionPageService;
+import com.example.main.service.QuestionPageService.SerializedPage;
 import com.example.main.service.QuestionService;
-import com.example.main.service.UserService;
+import com.example.main.service.QuestionVersionService;
+import com.example.main.service.QuestionVersionService.VersionStamp;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/questions")
@@ -19,38 +31,140 @@ public class QuestionController {
     private QuestionService questionService;
     
     @Autowired
-    private UserService userService;
+    private AuthorizationService authorizationService;
     
+    @Autowired
+    private QuestionPageService questionPageService;
+    
+    @Autowired
+    private QuestionVersionService questionVersionService;
+    
+    @Value("${stackunderflow.cache.pages.enabled:true}")
+    private boolean cachedPages;
+    
+    // List endpoints are keyset-paginated: pass the returned nextCursor as ?after= for the next page
     @GetMapping
-    public ResponseEntity<List<QuestionDto>> getAllQuestions() {
-        return ResponseEntity.ok(questionService.getAllQuestions());
+    public ResponseEntity<PageDto<QuestionSummaryDto>> getAllQuestions(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.getAllQuestions(PageCursor.parse(after), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
+    // Conditional GETs are answered from the version stamp alone; a null return means the 304 is already set up
     @GetMapping("/{id}")
-    public ResponseEntity<QuestionDto> getQuestionById(@PathVariable Long id) {
-        return questionService.getQuestionById(id)
+    public ResponseEntity<QuestionDto> getQuestionById(@PathVariable Long id, WebRequest request) {
+        Optional<VersionStamp> version = questionVersionService.getVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(version.get().etag("q"), version.get().lastModifiedMillis())) {
+            return null;
+        }
+        // Loaded under the same stamp the ETag came from
+        return questionService.getQuestionById(id, version.get())
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // Question with its answers. With cached pages enabled the stored JSON (or gzip) bytes are written
+    // as they are, skipping DTO assembly and serialization on a hit.
+    @GetMapping("/{id}/page")
+    public ResponseEntity<?> getQuestionPage(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        boolean gzip = cachedPages && acceptsGzip(acceptEncoding);
+        Optional<VersionStamp> version = questionVersionService.getVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(version.get().etag(gzip ? "pz" : "p"), version.get().lastModifiedMillis())) {
+            return null;
+        }
+        if (!cachedPages) {
+            return questionPageService.getQuestionPage(id, version.get())
+                    .<ResponseEntity<QuestionPageDto>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        
+        Optional<SerializedPage> page = questionPageService.getSerializedQuestionPage(id, version.get());
+        if (page.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.get().gzip());
+        }
+        return response.body(page.get().json());
+    }
+    
     @GetMapping("/author/{authorId}")
-    public ResponseEntity<List<QuestionDto>> getQuestionsByAuthor(@PathVariable Long authorId) {
-        return ResponseEntity.ok(questionService.getQuestionsByAuthor(authorId));
+    public ResponseEntity<PageDto<QuestionSummaryDto>> getQuestionsByAuthor(
+            @PathVariable Long authorId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.getQuestionsByAuthor(authorId, PageCursor.parse(after), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/tag/{tag}")
-    public ResponseEntity<List<QuestionDto>> getQuestionsByTag(@PathVariable String tag) {
-        return ResponseEntity.ok(questionService.getQuestionsByTag(tag));
+    public ResponseEntity<PageDto<QuestionSummaryDto>> getQuestionsByTag(
+            @PathVariable String tag,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.getQuestionsByTag(tag, PageCursor.parse(after), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<QuestionDto>> getQuestionsByStatus(@PathVariable String status) {
-        return ResponseEntity.ok(questionService.getQuestionsByStatus(status));
+    public ResponseEntity<PageDto<QuestionSummaryDto>> getQuestionsByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.getQuestionsByStatus(status, PageCursor.parse(after), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<QuestionDto>> searchQuestions(@RequestParam String keyword) {
-        return ResponseEntity.ok(questionService.searchQuestions(keyword));
+    public ResponseEntity<PageDto<QuestionSummaryDto>> searchQuestions(
+            @RequestParam String keyword,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.searchQuestions(keyword, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Boolean tag filter: every tag in all, at least one in any, none of none (comma-separated names)
+    @GetMapping("/tags")
+    public ResponseEntity<PageDto<QuestionSummaryDto>> getQuestionsByTags(
+            @RequestParam(required = false) String all,
+            @RequestParam(required = false) String any,
+            @RequestParam(required = false) String none,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(questionService.getQuestionsByTags(all, any, none, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PostMapping
@@ -80,7 +194,7 @@ public class QuestionController {
             @RequestHeader("User-Id") Long userId) {
         
         // Check if user is the author or a moderator
-        if (!isAuthorOrModerator(id, userId)) {
+        if (!authorizationService.isQuestionAuthorOrModerator(id, userId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -108,7 +222,7 @@ public class QuestionController {
             @RequestHeader("User-Id") Long userId) {
         
         // Check if user is the author or a moderator
-        if (!isAuthorOrModerator(id, userId)) {
+        if (!authorizationService.isQuestionAuthorOrModerator(id, userId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
@@ -119,9 +233,36 @@ public class QuestionController {
         }
     }
     
-    private boolean isAuthorOrModerator(Long questionId, Long userId) {
-        return questionService.getQuestionById(questionId)
-                .map(q -> q.getAuthorId().equals(userId) || userService.isModerator(userId))
-                .orElse(false);
+    // True when Accept-Encoding allows gzip, either by name or through "*", with a non-zero q-value
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] fields = part.split(";");
+            String coding = fields[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < fields.length; i++) {
+                String parameter = fields[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.example.main.controller;
+
+import com.example.main.dto.SuggestionsDto;
+import com.example.main.service.SuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/suggest")
+public class SuggestionController {
+    
+    @Autowired
+    private SuggestionService suggestionService;
+    
+    // Tag and title completions for what the user has typed so far
+    @GetMapping
+    public ResponseEntity<SuggestionsDto> suggest(
+            @RequestParam("q") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(suggestionService.suggest(prefix, limit));
+    }
+} 
\ No newline at end of file
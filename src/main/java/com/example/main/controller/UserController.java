@@ -1,12 +1,16 @@
 package com.example.main.controller;
 
+import com.example.main.dto.LeaderboardEntryDto;
 import com.example.main.dto.UserDto;
+import com.example.main.service.AuthorizationService;
+import com.example.main.service.LeaderboardService;
 import com.example.main.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -17,11 +21,41 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private AuthorizationService authorizationService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
     @GetMapping
     public ResponseEntity<List<UserDto>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
     }
     
+    // window is all, month or week
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<LeaderboardEntryDto>> getLeaderboard(
+            @RequestParam(defaultValue = "all") String window,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getLeaderboard(window, offset, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<LeaderboardEntryDto> getRank(@PathVariable Long id, @RequestParam(defaultValue = "all") String window) {
+        try {
+            return leaderboardService.getRank(id, window)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
         return userService.getUserById(id)
@@ -98,8 +132,8 @@ public class UserController {
     }
     
     @PutMapping("/{id}/score")
-    public ResponseEntity<UserDto> updateScore(@PathVariable Long id, @RequestBody Map<String, Float> payload) {
-        Float scoreChange = payload.get("scoreChange");
+    public ResponseEntity<UserDto> updateScore(@PathVariable Long id, @RequestBody Map<String, BigDecimal> payload) {
+        BigDecimal scoreChange = payload.get("scoreChange");
         
         if (scoreChange == null) {
             return ResponseEntity.badRequest().build();
@@ -147,6 +181,6 @@ public class UserController {
     
     @GetMapping("/{id}/is-moderator")
     public ResponseEntity<Boolean> isModerator(@PathVariable Long id) {
-        return ResponseEntity.ok(userService.isModerator(id));
+        return ResponseEntity.ok(authorizationService.isModerator(id));
     }
 } 
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.example.main.controller;
 
+import com.example.main.dto.VoteBatchResultDto;
 import com.example.main.dto.VoteDto;
+import com.example.main.dto.VoteStateDto;
 import com.example.main.service.VoteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -33,6 +35,19 @@ public class VoteController {
         return ResponseEntity.ok(voteService.getVotesByUser(userId));
     }
     
+    // Which of the listed posts the user voted on, e.g. /api/votes/user/7/state?questions=1,2&answers=5
+    @GetMapping("/user/{userId}/state")
+    public ResponseEntity<VoteStateDto> getVoteState(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "") List<Long> questions,
+            @RequestParam(defaultValue = "") List<Long> answers) {
+        try {
+            return ResponseEntity.ok(voteService.getVoteState(userId, questions, answers));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @PostMapping("/question")
     public ResponseEntity<VoteDto> voteOnQuestion(@RequestBody Map<String, Object> payload) {
         Long userId = Long.valueOf(payload.get("userId").toString());
@@ -71,6 +86,20 @@ public class VoteController {
         return ResponseEntity.ok(vote);
     }
     
+    // Offline clients replay queued votes here: items are applied in order in one transaction and
+    // each gets a result (voted, removed or rejected) at the same position. Every item must be the
+    // caller's own vote; the interceptor has already turned banned callers away.
+    @PostMapping("/batch")
+    public ResponseEntity<List<VoteBatchResultDto>> voteBatch(
+            @RequestBody List<VoteDto> votes,
+            @RequestHeader("User-Id") Long userId) {
+        try {
+            return ResponseEntity.ok(voteService.voteBatch(userId, votes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteVote(@PathVariable Long id) {
         if (voteService.deleteVote(id)) {
@@ -0,0 +1,43 @@
+package com.example.main.dto;
+
+import java.math.BigDecimal;
+
+public class LeaderboardEntryDto {
+    private long rank;
+    private Long userId;
+    private String username;
+    private BigDecimal score;  // reputation gained in the window; the total for "all"
+    
+    // Getters and Setters
+    public long getRank() {
+        return rank;
+    }
+
+    public void setRank(long rank) {
+        this.rank = rank;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public BigDecimal getScore() {
+        return score;
+    }
+
+    public void setScore(BigDecimal score) {
+        this.score = score;
+    }
+} 
\ No newline at end of file
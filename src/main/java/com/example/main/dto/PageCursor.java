@@ -0,0 +1,47 @@
+package com.example.main.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Position in a newest-first listing, encoded as "<createdAt>,<id>"
+public class PageCursor {
+    // Sorts after every real row, so the first page needs no special query
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+    
+    private final LocalDateTime createdAt;
+    private final Long id;
+    
+    public PageCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+    
+    public static PageCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return FIRST;
+        }
+        int separator = value.lastIndexOf(',');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+        try {
+            return new PageCursor(
+                    LocalDateTime.parse(value.substring(0, separator).trim()),
+                    Long.valueOf(value.substring(separator + 1).trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+    
+    public String encode() {
+        return createdAt + "," + id;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.main.dto;
+
+import java.util.List;
+
+public class PageDto<T> {
+    private List<T> items;
+    private String nextCursor; // null when there are no more items
+    
+    public PageDto() {
+    }
+    
+    public PageDto(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.main.dto;
+
+import java.util.List;
+
+// A question together with its answers, as rendered on the question page
+public class QuestionPageDto {
+    private QuestionDto question;
+    private List<AnswerDto> answers;
+    
+    public QuestionPageDto() {
+    }
+    
+    public QuestionPageDto(QuestionDto question, List<AnswerDto> answers) {
+        this.question = question;
+        this.answers = answers;
+    }
+    
+    // Getters and Setters
+    public QuestionDto getQuestion() {
+        return question;
+    }
+
+    public void setQuestion(QuestionDto question) {
+        this.question = question;
+    }
+
+    public List<AnswerDto> getAnswers() {
+        return answers;
+    }
+
+    public void setAnswers(List<AnswerDto> answers) {
+        this.answers = answers;
+    }
+} 
\ No newline at end of file
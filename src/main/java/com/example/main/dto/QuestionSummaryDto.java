@@ -0,0 +1,116 @@
+package com.example.main.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// List view of a question: everything the listings show, without the text body
+public class QuestionSummaryDto {
+    private Long questionId;
+    private Long authorId;
+    private String authorUsername;
+    private String title;
+    private String status;
+    private List<TagDto> tags;
+    private LocalDateTime createdAt;
+    private int upvotes;
+    private int downvotes;
+    private Long acceptedAnswerId;
+    
+    public QuestionSummaryDto() {
+    }
+    
+    // Used by the constructor expressions in QuestionRepository
+    public QuestionSummaryDto(Long questionId, Long authorId, String authorUsername, String title, String status,
+                              LocalDateTime createdAt, int upvotes, int downvotes, Long acceptedAnswerId) {
+        this.questionId = questionId;
+        this.authorId = authorId;
+        this.authorUsername = authorUsername;
+        this.title = title;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.upvotes = upvotes;
+        this.downvotes = downvotes;
+        this.acceptedAnswerId = acceptedAnswerId;
+    }
+    
+    // Getters and Setters
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(Long questionId) {
+        this.questionId = questionId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getAuthorUsername() {
+        return authorUsername;
+    }
+
+    public void setAuthorUsername(String authorUsername) {
+        this.authorUsername = authorUsername;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<TagDto> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<TagDto> tags) {
+        this.tags = tags;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getUpvotes() {
+        return upvotes;
+    }
+
+    public void setUpvotes(int upvotes) {
+        this.upvotes = upvotes;
+    }
+
+    public int getDownvotes() {
+        return downvotes;
+    }
+
+    public void setDownvotes(int downvotes) {
+        this.downvotes = downvotes;
+    }
+    
+    public Long getAcceptedAnswerId() {
+        return acceptedAnswerId;
+    }
+    
+    public void setAcceptedAnswerId(Long acceptedAnswerId) {
+        this.acceptedAnswerId = acceptedAnswerId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.main.dto;
+
+public class SuggestionDto {
+    private Long id;
+    private String text;
+    
+    public SuggestionDto() {
+    }
+    
+    public SuggestionDto(Long id, String text) {
+        this.id = id;
+        this.text = text;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.main.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SuggestionsDto {
+    private List<SuggestionDto> tags = new ArrayList<>();
+    private List<SuggestionDto> questions = new ArrayList<>();
+    
+    public SuggestionsDto() {
+    }
+    
+    public SuggestionsDto(List<SuggestionDto> tags, List<SuggestionDto> questions) {
+        this.tags = tags;
+        this.questions = questions;
+    }
+    
+    // Getters and Setters
+    public List<SuggestionDto> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<SuggestionDto> tags) {
+        this.tags = tags;
+    }
+
+    public List<SuggestionDto> getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(List<SuggestionDto> questions) {
+        this.questions = questions;
+    }
+} 
\ No newline at end of file
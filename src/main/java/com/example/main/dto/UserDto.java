@@ -1,12 +1,13 @@
 package com.example.main.dto;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class UserDto {
     private Long userId;
     private String username;
     private String email;
-    private float score;
+    private BigDecimal score;
     private boolean isBanned;
     private boolean isModerator;
     private String phoneNumber;
@@ -38,11 +39,11 @@ public class UserDto {
         this.email = email;
     }
 
-    public float getScore() {
+    public BigDecimal getScore() {
         return score;
     }
 
-    public void setScore(float score) {
+    public void setScore(BigDecimal score) {
         this.score = score;
     }
 
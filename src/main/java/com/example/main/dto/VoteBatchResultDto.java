@@ -0,0 +1,53 @@
+package com.example.main.dto;
+
+public class VoteBatchResultDto {
+    private String status;  // voted, removed or rejected
+    private VoteDto vote;
+    private String error;
+    
+    public static VoteBatchResultDto voted(VoteDto vote) {
+        VoteBatchResultDto result = new VoteBatchResultDto();
+        result.setStatus("voted");
+        result.setVote(vote);
+        return result;
+    }
+    
+    // The same vote was already there, so it was toggled off
+    public static VoteBatchResultDto removed() {
+        VoteBatchResultDto result = new VoteBatchResultDto();
+        result.setStatus("removed");
+        return result;
+    }
+    
+    public static VoteBatchResultDto rejected(String error) {
+        VoteBatchResultDto result = new VoteBatchResultDto();
+        result.setStatus("rejected");
+        result.setError(error);
+        return result;
+    }
+    
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public VoteDto getVote() {
+        return vote;
+    }
+
+    public void setVote(VoteDto vote) {
+        this.vote = vote;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+} 
\ No newline at end of file
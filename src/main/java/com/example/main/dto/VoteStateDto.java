@@ -0,0 +1,27 @@
+package com.example.main.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Vote type ("upvote" or "downvote") by post id; posts the viewer did not vote on are absent
+public class VoteStateDto {
+    private Map<Long, String> questions = new HashMap<>();
+    private Map<Long, String> answers = new HashMap<>();
+    
+    // Getters and Setters
+    public Map<Long, String> getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(Map<Long, String> questions) {
+        this.questions = questions;
+    }
+
+    public Map<Long, String> getAnswers() {
+        return answers;
+    }
+
+    public void setAnswers(Map<Long, String> answers) {
+        this.answers = answers;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.main.event;
+
+// Published by the services whenever a question or something shown with it changes. answerId names
+// the answer for ANSWER_VOTES and is null otherwise.
+public record QuestionChangedEvent(Long questionId, Change change, Long answerId) {
+    
+    public QuestionChangedEvent(Long questionId, Change change) {
+        this(questionId, change, null);
+    }
+    
+    public enum Change {
+        CONTENT,  // title, text, tags, status or accepted answer
+        ANSWERS,  // an answer was added, edited or removed
+        VOTES,  // the question's vote counts
+        ANSWER_VOTES,  // vote counts of one of its answers
+        DELETED
+    }
+}
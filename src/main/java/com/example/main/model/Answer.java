@@ -1,6 +1,8 @@
 package com.example.main.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,14 +11,16 @@ import java.util.List;
 @Table(name = "answers")
 public class Answer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "answer_ids")
+    @TableGenerator(name = "answer_ids", table = "id_sequences", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "answers", allocationSize = 50)
     private Long answerId;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "question_id", nullable = false)
     private Question question;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
     
@@ -32,6 +36,14 @@ public class Answer {
     @OneToMany(mappedBy = "answer", cascade = CascadeType.ALL)
     private List<Vote> votes = new ArrayList<>();
     
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int upvoteCount;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int downvoteCount;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -93,4 +105,20 @@ public class Answer {
     public void setVotes(List<Vote> votes) {
         this.votes = votes;
     }
+
+    public int getUpvoteCount() {
+        return upvoteCount;
+    }
+    
+    public void setUpvoteCount(int upvoteCount) {
+        this.upvoteCount = upvoteCount;
+    }
+    
+    public int getDownvoteCount() {
+        return downvoteCount;
+    }
+    
+    public void setDownvoteCount(int downvoteCount) {
+        this.downvoteCount = downvoteCount;
+    }
 }
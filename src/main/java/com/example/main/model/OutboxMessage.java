@@ -0,0 +1,155 @@
+package com.example.main.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A notification written in the same transaction as the change that caused it and delivered later by
+// NotificationDispatcher, so a slow email or SMS provider never holds up a request
+@Entity
+@Table(name = "notification_outbox", indexes = {
+    @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_outbox_claim_token", columnList = "claim_token")
+})
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long messageId;
+    
+    @Column(nullable = false)
+    private String channel; // 'email' or 'sms'
+    
+    @Column(nullable = false)
+    private String recipient;
+    
+    @Column
+    private String subject;
+    
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String body;
+    
+    @Column(nullable = false)
+    private String status; // 'pending', 'sent' or 'failed'
+    
+    @Column(nullable = false)
+    private int attempts;
+    
+    // When the message is next due; while a dispatcher holds the claim, when that claim runs out
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column
+    private String claimToken;
+    
+    @Column(length = 1000)
+    private String lastError;
+    
+    @Column
+    private LocalDateTime createdAt;
+    
+    @Column
+    private LocalDateTime sentAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        nextAttemptAt = createdAt;
+        status = "pending";
+    }
+    
+    // Getters and Setters
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+} 
\ No newline at end of file
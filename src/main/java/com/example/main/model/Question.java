@@ -1,18 +1,28 @@
 package com.example.main.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "questions")
+@Table(name = "questions", indexes = {
+    @Index(name = "idx_questions_created", columnList = "created_at, question_id"),
+    @Index(name = "idx_questions_author_created", columnList = "author_id, created_at, question_id"),
+    @Index(name = "idx_questions_status_created", columnList = "status, created_at, question_id"),
+    @Index(name = "idx_questions_last_modified", columnList = "last_modified")
+})
 public class Question {
+    // Pooled table ids: one id_sequences round trip per 50 rows, so inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "question_ids")
+    @TableGenerator(name = "question_ids", table = "id_sequences", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "questions", allocationSize = 50)
     private Long questionId;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
     
@@ -32,7 +42,8 @@ public class Question {
     @JoinTable(
         name = "question_tags",
         joinColumns = @JoinColumn(name = "question_id"),
-        inverseJoinColumns = @JoinColumn(name = "tag_id")
+        inverseJoinColumns = @JoinColumn(name = "tag_id"),
+        indexes = @Index(name = "idx_question_tags_tag", columnList = "tag_id, question_id")
     )
     private List<Tag> tags = new ArrayList<>();
     
@@ -48,9 +59,26 @@ public class Question {
     @Column
     private Long acceptedAnswerId;
     
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int upvoteCount;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int downvoteCount;
+    
+    // Bumped with a bulk update whenever the question page changes; drives ETags
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long contentVersion;
+    
+    @Column(updatable = false)
+    private LocalDateTime lastModified;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        lastModified = createdAt;
         status = "received";
     }
     
@@ -142,4 +170,36 @@ public class Question {
     public void setAcceptedAnswerId(Long acceptedAnswerId) {
         this.acceptedAnswerId = acceptedAnswerId;
     }
+
+    public int getUpvoteCount() {
+        return upvoteCount;
+    }
+    
+    public void setUpvoteCount(int upvoteCount) {
+        this.upvoteCount = upvoteCount;
+    }
+    
+    public int getDownvoteCount() {
+        return downvoteCount;
+    }
+    
+    public void setDownvoteCount(int downvoteCount) {
+        this.downvoteCount = downvoteCount;
+    }
+    
+    public long getContentVersion() {
+        return contentVersion;
+    }
+    
+    public void setContentVersion(long contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+    
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+    
+    public void setLastModified(LocalDateTime lastModified) {
+        this.lastModified = lastModified;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.main.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One score change, appended in the transaction that caused it. users.score catches up when a
+// flush claims the entry (flushId set) and adds it, in one transaction, so an entry is counted
+// exactly once. No foreign key to users: the ledger outlives deleted accounts.
+@Entity
+@Table(name = "reputation_ledger", indexes = {
+    @Index(name = "idx_ledger_flush_created", columnList = "flush_id, created_at"),
+    @Index(name = "idx_ledger_created_user", columnList = "created_at, user_id, delta")
+})
+public class ReputationLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ledger_ids")
+    @TableGenerator(name = "ledger_ids", table = "id_sequences", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "reputation_ledger", allocationSize = 50)
+    private Long entryId;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal delta;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(length = 36)
+    private String flushId;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getEntryId() {
+        return entryId;
+    }
+    
+    public void setEntryId(Long entryId) {
+        this.entryId = entryId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public BigDecimal getDelta() {
+        return delta;
+    }
+    
+    public void setDelta(BigDecimal delta) {
+        this.delta = delta;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public String getFlushId() {
+        return flushId;
+    }
+    
+    public void setFlushId(String flushId) {
+        this.flushId = flushId;
+    }
+} 
\ No newline at end of file
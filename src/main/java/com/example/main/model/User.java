@@ -1,6 +1,9 @@
 package com.example.main.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,8 +24,10 @@ public class User {
     @Column(nullable = false)
     private String passwordHash;
     
-    @Column(columnDefinition = "float default 0")
-    private float score;
+    // Fixed point, changed only by "score = score + delta" updates (ScoreService), never by saving the entity
+    @ColumnDefault("0")
+    @Column(nullable = false, precision = 19, scale = 2, insertable = false, updatable = false)
+    private BigDecimal score = BigDecimal.ZERO;
     
     @Column(columnDefinition = "boolean default false")
     private boolean isBanned;
@@ -86,11 +91,11 @@ public class User {
         this.passwordHash = passwordHash;
     }
 
-    public float getScore() {
+    public BigDecimal getScore() {
         return score;
     }
 
-    public void setScore(float score) {
+    public void setScore(BigDecimal score) {
         this.score = score;
     }
 
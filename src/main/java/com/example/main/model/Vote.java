@@ -4,21 +4,27 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "votes")
+// vote_type is in the indexes so a viewer's vote state is read from the index alone
+@Table(name = "votes", indexes = {
+    @Index(name = "idx_votes_user_question", columnList = "user_id, question_id, vote_type"),
+    @Index(name = "idx_votes_user_answer", columnList = "user_id, answer_id, vote_type")
+})
 public class Vote {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "vote_ids")
+    @TableGenerator(name = "vote_ids", table = "id_sequences", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "votes", allocationSize = 50)
     private Long voteId;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "question_id")
     private Question question;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "answer_id")
     private Answer answer;
     
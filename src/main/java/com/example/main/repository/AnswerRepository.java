@@ -3,13 +3,79 @@ package com.example.main.repository;
 import com.example.main.model.Answer;
 import com.example.main.model.Question;
 import com.example.main.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
+    interface AnswerTextRow {
+        Long getQuestionId();
+        String getText();
+    }
+    
+    interface AnswerVoteCountRow {
+        Long getAnswerId();
+        int getUpvoteCount();
+        int getDownvoteCount();
+    }
+    
     List<Answer> findByQuestion(Question question);
+    
+    @EntityGraph(attributePaths = "question")
     List<Answer> findByAuthor(User author);
-} 
\ No newline at end of file
+    
+    @Override
+    @EntityGraph(attributePaths = {"author", "question"})
+    List<Answer> findAll();
+    
+    @EntityGraph(attributePaths = {"author", "question"})
+    Optional<Answer> findDetailedByAnswerId(Long answerId);
+    
+    // Author id only, for ownership checks; reads the foreign key without joining users
+    @Query("SELECT a.author.userId FROM Answer a WHERE a.answerId = :answerId")
+    Optional<Long> findAuthorIdByAnswerId(@Param("answerId") Long answerId);
+    
+    // Accepted answer first, then by net score, oldest first on ties
+    @Query("SELECT a FROM Answer a JOIN FETCH a.question q JOIN FETCH a.author " +
+           "WHERE q.questionId = :questionId " +
+           "ORDER BY CASE WHEN a.answerId = q.acceptedAnswerId THEN 0 ELSE 1 END, " +
+           "(a.upvoteCount - a.downvoteCount) DESC, a.createdAt ASC, a.answerId ASC")
+    List<Answer> findByQuestionIdOrderByScore(@Param("questionId") Long questionId);
+    
+    @Query("SELECT a.answerId AS answerId, a.upvoteCount AS upvoteCount, a.downvoteCount AS downvoteCount " +
+           "FROM Answer a WHERE a.answerId = :answerId")
+    Optional<AnswerVoteCountRow> findVoteCountsByAnswerId(@Param("answerId") Long answerId);
+    
+    @Query("SELECT a.question.questionId AS questionId, a.text AS text FROM Answer a " +
+           "WHERE a.question.questionId IN :questionIds")
+    List<AnswerTextRow> findTextsByQuestionIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Answer a SET a.upvoteCount = a.upvoteCount + :upvotes, " +
+           "a.downvoteCount = a.downvoteCount + :downvotes WHERE a.answerId = :answerId")
+    int adjustVoteCounts(@Param("answerId") Long answerId,
+                         @Param("upvotes") int upvotes,
+                         @Param("downvotes") int downvotes);
+    
+    boolean existsByUpvoteCountGreaterThanOrDownvoteCountGreaterThan(int upvotes, int downvotes);
+    
+    // Recomputes the denormalized counters from the votes table. Like VoteService, anything but an
+    // upvote counts as a downvote.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE answers a SET " +
+                   "a.upvote_count = (SELECT COUNT(*) FROM votes v WHERE v.answer_id = a.answer_id AND v.vote_type = 'upvote'), " +
+                   "a.downvote_count = (SELECT COUNT(*) FROM votes v WHERE v.answer_id = a.answer_id AND v.vote_type <> 'upvote')",
+           nativeQuery = true)
+    int recomputeVoteCounts();
+}
@@ -0,0 +1,55 @@
+package com.example.main.repository;
+
+import com.example.main.model.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+    @Query("SELECT m.messageId FROM OutboxMessage m WHERE m.status = 'pending' AND m.nextAttemptAt <= :now " +
+           "ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    // Takes the messages that are still due; rows another dispatcher claimed first are left alone.
+    // The claim lasts until leaseUntil, after which an unfinished message becomes due again.
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.claimToken = :token, m.nextAttemptAt = :leaseUntil " +
+           "WHERE m.messageId IN :messageIds AND m.status = 'pending' AND m.nextAttemptAt <= :now")
+    int claim(@Param("messageIds") Collection<Long> messageIds,
+              @Param("token") String token,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+    
+    List<OutboxMessage> findByClaimToken(String claimToken);
+    
+    // Results count only while the claim is still ours; once the lease ran out and another dispatcher
+    // claimed the message, its outcome is the one recorded
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'sent', m.sentAt = :now, m.attempts = m.attempts + 1, " +
+           "m.claimToken = NULL WHERE m.messageId IN :messageIds AND m.claimToken = :token")
+    int markSent(@Param("messageIds") Collection<Long> messageIds,
+                 @Param("token") String token,
+                 @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, " +
+           "m.attempts = m.attempts + 1, m.lastError = :error, m.claimToken = NULL " +
+           "WHERE m.messageId = :messageId AND m.claimToken = :token")
+    int markFailed(@Param("messageId") Long messageId,
+                   @Param("token") String token,
+                   @Param("status") String status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+} 
\ No newline at end of file
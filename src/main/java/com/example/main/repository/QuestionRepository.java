@@ -1,18 +1,163 @@
 package com.example.main.repository;
 
+import com.example.main.dto.QuestionSummaryDto;
 import com.example.main.model.Question;
-import com.example.main.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
-    List<Question> findByAuthor(User author);
+    interface QuestionTagRow {
+        Long getQuestionId();
+        Long getTagId();
+        String getName();
+    }
     
-    List<Question> findByStatus(String status);
+    interface QuestionTextRow {
+        Long getQuestionId();
+        String getTitle();
+        String getText();
+    }
     
-    List<Question> findByTitleContainingOrTextContaining(String titleKeyword, String textKeyword);
-} 
\ No newline at end of file
+    interface QuestionVersionRow {
+        Long getContentVersion();
+        LocalDateTime getLastModified();
+    }
+    
+    interface QuestionVoteCountRow {
+        Long getContentVersion();
+        int getUpvoteCount();
+        int getDownvoteCount();
+    }
+    
+    interface QuestionTitleRow {
+        Long getQuestionId();
+        String getTitle();
+        Integer getScore();
+    }
+    
+    @EntityGraph(attributePaths = {"author", "tags"})
+    Optional<Question> findDetailedByQuestionId(Long questionId);
+    
+    // Author id only, for ownership checks; reads the foreign key without joining users
+    @Query("SELECT q.author.userId FROM Question q WHERE q.questionId = :questionId")
+    Optional<Long> findAuthorIdByQuestionId(@Param("questionId") Long questionId);
+    
+    // Tags for a batch of questions in one statement, attached to each page of summaries
+    @Query("SELECT q.questionId AS questionId, t.tagId AS tagId, t.name AS name " +
+           "FROM Question q JOIN q.tags t WHERE q.questionId IN :questionIds")
+    List<QuestionTagRow> findTagsByQuestionIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    String SUMMARY_SELECT = "SELECT new com.example.main.dto.QuestionSummaryDto(" +
+            "q.questionId, a.userId, a.username, q.title, q.status, q.createdAt, " +
+            "q.upvoteCount, q.downvoteCount, q.acceptedAnswerId) " +
+            "FROM Question q JOIN q.author a ";
+    
+    // Keyset pages, newest first: rows strictly after the (createdAt, questionId) cursor.
+    // They select summaries only, so the TEXT body is never read for a listing.
+    @Query(SUMMARY_SELECT +
+           "WHERE q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.questionId < :questionId) " +
+           "ORDER BY q.createdAt DESC, q.questionId DESC")
+    List<QuestionSummaryDto> findPage(@Param("createdAt") LocalDateTime createdAt,
+                            @Param("questionId") Long questionId,
+                            Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE a.userId = :authorId " +
+           "AND (q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.questionId < :questionId)) " +
+           "ORDER BY q.createdAt DESC, q.questionId DESC")
+    List<QuestionSummaryDto> findPageByAuthor(@Param("authorId") Long authorId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("questionId") Long questionId,
+                                    Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "JOIN q.tags t WHERE t.tagId = :tagId " +
+           "AND (q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.questionId < :questionId)) " +
+           "ORDER BY q.createdAt DESC, q.questionId DESC")
+    List<QuestionSummaryDto> findPageByTag(@Param("tagId") Long tagId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("questionId") Long questionId,
+                                 Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE q.status = :status " +
+           "AND (q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.questionId < :questionId)) " +
+           "ORDER BY q.createdAt DESC, q.questionId DESC")
+    List<QuestionSummaryDto> findPageByStatus(@Param("status") String status,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("questionId") Long questionId,
+                                    Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE q.questionId IN :questionIds")
+    List<QuestionSummaryDto> findSummariesByIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    // Searchable fields, streamed in id order when the search index is rebuilt
+    @Query("SELECT q.questionId AS questionId, q.title AS title, q.text AS text FROM Question q " +
+           "WHERE q.questionId > :afterId ORDER BY q.questionId")
+    List<QuestionTextRow> findTextsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT q.questionId AS questionId, q.title AS title, q.text AS text FROM Question q " +
+           "WHERE q.questionId IN :questionIds")
+    List<QuestionTextRow> findTextsByQuestionIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    // Question ids in ascending order, a chunk at a time
+    @Query("SELECT q.questionId FROM Question q WHERE q.questionId > :afterId ORDER BY q.questionId")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Questions modified at or after a point in time, in id order a chunk at a time
+    @Query("SELECT q.questionId FROM Question q WHERE q.lastModified >= :since AND q.questionId > :afterId " +
+           "ORDER BY q.questionId")
+    List<Long> findIdsModifiedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Titles with their vote score, streamed in id order to build the suggestion trie
+    @Query("SELECT q.questionId AS questionId, q.title AS title, q.upvoteCount - q.downvoteCount AS score " +
+           "FROM Question q WHERE q.questionId > :afterId ORDER BY q.questionId")
+    List<QuestionTitleRow> findTitlesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT q.questionId AS questionId, q.title AS title, q.upvoteCount - q.downvoteCount AS score " +
+           "FROM Question q WHERE q.questionId IN :questionIds")
+    List<QuestionTitleRow> findTitlesByQuestionIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Question q SET q.upvoteCount = q.upvoteCount + :upvotes, " +
+           "q.downvoteCount = q.downvoteCount + :downvotes WHERE q.questionId = :questionId")
+    int adjustVoteCounts(@Param("questionId") Long questionId,
+                         @Param("upvotes") int upvotes,
+                         @Param("downvotes") int downvotes);
+    
+    @Query("SELECT q.contentVersion AS contentVersion, q.lastModified AS lastModified FROM Question q " +
+           "WHERE q.questionId = :questionId")
+    Optional<QuestionVersionRow> findVersionByQuestionId(@Param("questionId") Long questionId);
+    
+    @Query("SELECT q.contentVersion AS contentVersion, q.upvoteCount AS upvoteCount, " +
+           "q.downvoteCount AS downvoteCount FROM Question q WHERE q.questionId = :questionId")
+    Optional<QuestionVoteCountRow> findVoteCountsByQuestionId(@Param("questionId") Long questionId);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Question q SET q.contentVersion = q.contentVersion + 1, q.lastModified = :now " +
+           "WHERE q.questionId = :questionId")
+    int bumpContentVersion(@Param("questionId") Long questionId, @Param("now") LocalDateTime now);
+    
+    boolean existsByUpvoteCountGreaterThanOrDownvoteCountGreaterThan(int upvotes, int downvotes);
+    
+    // Recomputes the denormalized counters from the votes table. Like VoteService, anything but an
+    // upvote counts as a downvote.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE questions q SET " +
+                   "q.upvote_count = (SELECT COUNT(*) FROM votes v WHERE v.question_id = q.question_id AND v.vote_type = 'upvote'), " +
+                   "q.downvote_count = (SELECT COUNT(*) FROM votes v WHERE v.question_id = q.question_id AND v.vote_type <> 'upvote')",
+           nativeQuery = true)
+    int recomputeVoteCounts();
+}
@@ -0,0 +1,50 @@
+package com.example.main.repository;
+
+import com.example.main.model.ReputationLedgerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReputationLedgerRepository extends JpaRepository<ReputationLedgerEntry, Long> {
+    interface UserDeltaRow {
+        Long getUserId();
+        BigDecimal getDelta();
+    }
+    
+    interface UserDayDeltaRow {
+        Long getUserId();
+        LocalDate getDay();
+        BigDecimal getDelta();
+    }
+    
+    // Entries no flush has claimed yet; rows another flush claimed first are left alone
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReputationLedgerEntry e SET e.flushId = :flushId WHERE e.entryId IN :entryIds AND e.flushId IS NULL")
+    int claim(@Param("entryIds") Collection<Long> entryIds, @Param("flushId") String flushId);
+    
+    // Per-user sums of one flush, in user id order so flushes lock user rows in the same order
+    @Query("SELECT e.userId AS userId, SUM(e.delta) AS delta FROM ReputationLedgerEntry e " +
+           "WHERE e.flushId = :flushId GROUP BY e.userId ORDER BY e.userId")
+    List<UserDeltaRow> sumByFlushId(@Param("flushId") String flushId);
+    
+    // Per-user, per-day sums since a time, for the windowed leaderboards; a range scan of idx_ledger_created_user
+    @Query("SELECT e.userId AS userId, CAST(e.createdAt AS LocalDate) AS day, SUM(e.delta) AS delta " +
+           "FROM ReputationLedgerEntry e WHERE e.createdAt >= :since GROUP BY e.userId, CAST(e.createdAt AS LocalDate)")
+    List<UserDayDeltaRow> sumByUserAndDaySince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT e.entryId FROM ReputationLedgerEntry e WHERE e.flushId IS NULL AND e.createdAt < :cutoff " +
+           "ORDER BY e.createdAt")
+    List<Long> findUnflushedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+} 
\ No newline at end of file
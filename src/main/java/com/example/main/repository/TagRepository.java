@@ -2,12 +2,38 @@ package com.example.main.repository;
 
 import com.example.main.model.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
+    interface TagNameRow {
+        Long getTagId();
+        String getName();
+    }
+    
+    interface TagUsageRow {
+        Long getTagId();
+        String getName();
+        Long getUsageCount();
+    }
+    
     Optional<Tag> findByName(String name);
     boolean existsByName(String name);
+    
+    @Query("SELECT t.tagId AS tagId, t.name AS name FROM Tag t")
+    List<TagNameRow> findAllNames();
+    
+    @Query("SELECT t.tagId AS tagId, t.name AS name FROM Tag t WHERE t.name IN :names")
+    List<TagNameRow> findByNameIn(@Param("names") Collection<String> names);
+    
+    // Number of questions per tag, counted on the join table without loading any question
+    @Query("SELECT t.tagId AS tagId, t.name AS name, COUNT(q) AS usageCount " +
+           "FROM Tag t LEFT JOIN t.questions q GROUP BY t.tagId, t.name")
+    List<TagUsageRow> findUsageCounts();
 } 
\ No newline at end of file
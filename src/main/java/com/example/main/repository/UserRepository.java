@@ -1,15 +1,43 @@
 package com.example.main.repository;
 
 import com.example.main.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    interface UserScoreRow {
+        Long getUserId();
+        BigDecimal getScore();
+    }
+    
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    
+    // Ban flag alone, without loading the user row into an entity
+    @Query("SELECT u.isBanned FROM User u WHERE u.userId = :userId")
+    Optional<Boolean> findBannedByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT u.userId FROM User u WHERE u.isModerator = true")
+    List<Long> findModeratorIds();
+    
+    // Keyset chunks of all scores, for loading the leaderboard
+    @Query("SELECT u.userId AS userId, u.score AS score FROM User u WHERE u.userId > :lastId ORDER BY u.userId")
+    List<UserScoreRow> findScoresAfter(@Param("lastId") Long lastId, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.score = u.score + :delta WHERE u.userId = :userId")
+    int addScore(@Param("userId") Long userId, @Param("delta") BigDecimal delta);
 } 
\ No newline at end of file
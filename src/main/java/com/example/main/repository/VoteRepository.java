@@ -5,8 +5,11 @@ import com.example.main.model.Question;
 import com.example.main.model.User;
 import com.example.main.model.Vote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,30 @@ public interface VoteRepository extends JpaRepository<Vote, Long> {
     List<Vote> findByAnswer(Answer answer);
     Optional<Vote> findByUserAndQuestion(User user, Question question);
     Optional<Vote> findByUserAndAnswer(User user, Answer answer);
+    boolean existsByVoteTypeNotNull();
+    
+    interface TargetVoteRow {
+        Long getTargetId();
+        String getVoteType();
+    }
+    
+    // A viewer's votes on one page of posts, answered from idx_votes_user_question / idx_votes_user_answer
+    @Query("SELECT v.question.questionId AS targetId, v.voteType AS voteType FROM Vote v " +
+           "WHERE v.user.userId = :userId AND v.question.questionId IN :questionIds")
+    List<TargetVoteRow> findQuestionVoteTypes(@Param("userId") Long userId,
+                                              @Param("questionIds") Collection<Long> questionIds);
+    
+    @Query("SELECT v.answer.answerId AS targetId, v.voteType AS voteType FROM Vote v " +
+           "WHERE v.user.userId = :userId AND v.answer.answerId IN :answerIds")
+    List<TargetVoteRow> findAnswerVoteTypes(@Param("userId") Long userId,
+                                            @Param("answerIds") Collection<Long> answerIds);
+    
+    // Existing votes for batch voting: every vote of these users on these questions (or answers)
+    @Query("SELECT v FROM Vote v WHERE v.user.userId IN :userIds AND v.question.questionId IN :questionIds")
+    List<Vote> findQuestionVotes(@Param("userIds") Collection<Long> userIds,
+                                 @Param("questionIds") Collection<Long> questionIds);
+    
+    @Query("SELECT v FROM Vote v WHERE v.user.userId IN :userIds AND v.answer.answerId IN :answerIds")
+    List<Vote> findAnswerVotes(@Param("userIds") Collection<Long> userIds,
+                               @Param("answerIds") Collection<Long> answerIds);
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.main.search;
+
+// Okapi BM25 with the usual defaults
+public final class Bm25 {
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    
+    private Bm25() {
+    }
+    
+    public static double idf(long documentCount, long documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+    
+    public static double score(double idf, int termFrequency, int documentLength, double averageLength) {
+        double norm = K1 * (1 - B + B * documentLength / averageLength);
+        return idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+    }
+}
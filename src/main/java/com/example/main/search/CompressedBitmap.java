@@ -0,0 +1,419 @@
+package com.example.main.search;
+
+import java.util.Arrays;
+
+// Roaring-style compressed set of non-negative longs. Values are split into a high key
+// (value >>> 16) and a 16-bit low part; each key owns a container that is a sorted char array
+// while sparse and a 65536-bit bitmap once it holds more than 4096 values.
+// Not thread-safe; callers guard shared instances.
+public final class CompressedBitmap {
+    
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    
+    private long[] keys = new long[0];
+    private Container[] containers = new Container[0];
+    private int size;
+    
+    public boolean add(long value) {
+        long key = value >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) value);
+        return containers[index].cardinality() > before;
+    }
+    
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.remove((char) value);
+        if (containers[index].cardinality() == 0) {
+            removeContainer(index);
+            return true;
+        }
+        return containers[index].cardinality() < before;
+    }
+    
+    public boolean contains(long value) {
+        int index = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        return index >= 0 && containers[index].contains((char) value);
+    }
+    
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    // Largest value <= from, or -1 when there is none; used to walk the set newest id first
+    public long previous(long from) {
+        if (from < 0) {
+            return -1;
+        }
+        long key = from >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            int low = containers[index].previous((char) from);
+            if (low >= 0) {
+                return (key << 16) | low;
+            }
+            index--;
+        } else {
+            index = -index - 2;
+        }
+        if (index < 0) {
+            return -1;
+        }
+        return (keys[index] << 16) | containers[index].previous((char) 0xFFFF);
+    }
+    
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.containers = new Container[size];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+    
+    public static CompressedBitmap and(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                Container container = left.containers[i].and(right.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.appendContainer(left.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    public static CompressedBitmap or(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j == right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.appendContainer(left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i == left.size || left.keys[i] > right.keys[j]) {
+                result.appendContainer(right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(left.keys[i], left.containers[i].or(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    public static CompressedBitmap andNot(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < left.size; i++) {
+            while (j < right.size && right.keys[j] < left.keys[i]) {
+                j++;
+            }
+            Container container = j < right.size && right.keys[j] == left.keys[i]
+                    ? left.containers[i].andNot(right.containers[j])
+                    : left.containers[i].copy();
+            if (container.cardinality() > 0) {
+                result.appendContainer(left.keys[i], container);
+            }
+        }
+        return result;
+    }
+    
+    private void insertContainer(int index, long key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+    
+    private void appendContainer(long key, Container container) {
+        insertContainer(size, key, container);
+    }
+    
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+    
+    // Mutators return the container to keep, which switches representation around ARRAY_MAX
+    private abstract static class Container {
+        abstract int cardinality();
+        
+        abstract boolean contains(char value);
+        
+        abstract Container add(char value);
+        
+        abstract Container remove(char value);
+        
+        // Largest value <= from, or -1
+        abstract int previous(char from);
+        
+        abstract Container copy();
+        
+        abstract BitmapContainer toBitmap();
+        
+        Container and(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, true);
+            }
+            if (other instanceof ArrayContainer array) {
+                return array.filter(this, true);
+            }
+            return ((BitmapContainer) this).combine((BitmapContainer) other, Operation.AND);
+        }
+        
+        Container or(Container other) {
+            if (this instanceof ArrayContainer left && other instanceof ArrayContainer right
+                    && left.cardinality + right.cardinality <= ARRAY_MAX) {
+                return left.union(right);
+            }
+            return toBitmap().combine(other.toBitmap(), Operation.OR);
+        }
+        
+        Container andNot(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, false);
+            }
+            return ((BitmapContainer) this).combine(other.toBitmap(), Operation.AND_NOT);
+        }
+    }
+    
+    private enum Operation {
+        AND, OR, AND_NOT
+    }
+    
+    private static final class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int cardinality;
+        
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+        
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+        
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+        
+        @Override
+        int previous(char from) {
+            int index = Arrays.binarySearch(values, 0, cardinality, from);
+            if (index >= 0) {
+                return values[index];
+            }
+            index = -index - 2;
+            return index >= 0 ? values[index] : -1;
+        }
+        
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+        
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+        
+        // Keeps the values that are (or, with keep == false, are not) in other
+        ArrayContainer filter(Container other, boolean keep) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keep) {
+                    result.values[result.cardinality++] = values[i];
+                }
+            }
+            return result;
+        }
+        
+        ArrayContainer union(ArrayContainer other) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(4, cardinality + other.cardinality)];
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < other.cardinality) {
+                char next;
+                if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    next = values[i++];
+                } else if (i == cardinality || values[i] > other.values[j]) {
+                    next = other.values[j++];
+                } else {
+                    next = values[i++];
+                    j++;
+                }
+                result.values[result.cardinality++] = next;
+            }
+            return result;
+        }
+    }
+    
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+        
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+        
+        @Override
+        Container add(char value) {
+            if (!contains(value)) {
+                words[value >>> 6] |= 1L << value;
+                cardinality++;
+            }
+            return this;
+        }
+        
+        @Override
+        Container remove(char value) {
+            if (contains(value)) {
+                words[value >>> 6] &= ~(1L << value);
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+        
+        @Override
+        int previous(char from) {
+            int word = from >>> 6;
+            // Mask off bits above from within its word
+            long bits = words[word] & (-1L >>> (63 - (from & 63)));
+            while (true) {
+                if (bits != 0) {
+                    return word * 64 + 63 - Long.numberOfLeadingZeros(bits);
+                }
+                if (--word < 0) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+        }
+        
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+        
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+        
+        Container combine(BitmapContainer other, Operation operation) {
+            BitmapContainer result = new BitmapContainer();
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = switch (operation) {
+                    case AND -> words[i] & other.words[i];
+                    case OR -> words[i] | other.words[i];
+                    case AND_NOT -> words[i] & ~other.words[i];
+                };
+                result.words[i] = word;
+                cardinality += Long.bitCount(word);
+            }
+            result.cardinality = cardinality;
+            return cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+        
+        private ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array.values[array.cardinality++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+    }
+}
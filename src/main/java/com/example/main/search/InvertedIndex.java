@@ -0,0 +1,135 @@
+package com.example.main.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Mutable in-memory term dictionary with per-term postings (question id -> weighted term frequency).
+// SegmentedIndex uses it for recent changes until they are flushed to an immutable segment.
+public class InvertedIndex {
+    
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    
+    // Forward index so a document's postings can be removed when it changes
+    private final Map<Long, DocumentEntry> documents = new HashMap<>();
+    
+    private long totalLength;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private record DocumentEntry(String[] terms, int length) {
+    }
+    
+    public void index(QuestionDocument document) {
+        Map<String, Integer> frequencies = document.termFrequencies();
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        long questionId = document.getQuestionId();
+        
+        lock.writeLock().lock();
+        try {
+            removeLocked(questionId);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(questionId, entry.getValue());
+            }
+            documents.put(questionId, new DocumentEntry(frequencies.keySet().toArray(new String[0]), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long questionId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(questionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public long totalLength() {
+        lock.readLock().lock();
+        try {
+            return totalLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int documentFrequency(String term) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> termPostings = postings.get(term);
+            return termPostings == null ? 0 : termPostings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void forEachPosting(String term, PostingConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings == null) {
+                return;
+            }
+            for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                consumer.accept(posting.getKey(), posting.getValue(), documents.get(posting.getKey()).length());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Snapshot of (question id, document length) pairs
+    public Map<Long, Integer> documentLengths() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> lengths = new HashMap<>();
+            documents.forEach((questionId, entry) -> lengths.put(questionId, entry.length()));
+            return lengths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public List<String> sortedTerms() {
+        lock.readLock().lock();
+        try {
+            List<String> terms = new ArrayList<>(postings.keySet());
+            terms.sort(null);
+            return terms;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void removeLocked(long questionId) {
+        DocumentEntry existing = documents.remove(questionId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(questionId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= existing.length();
+    }
+}
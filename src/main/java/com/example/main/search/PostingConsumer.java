@@ -0,0 +1,6 @@
+package com.example.main.search;
+
+@FunctionalInterface
+public interface PostingConsumer {
+    void accept(long questionId, int frequency, int documentLength);
+}
@@ -0,0 +1,260 @@
+package com.example.main.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compressed (radix) prefix trie mapping keys to weighted values. Every node caches the highest
+// weight in its subtree, so topK walks best-first and stops after k entries instead of
+// visiting every completion of the prefix.
+public class PrefixTrie<V> {
+    
+    private static final class Node<V> {
+        String label;
+        V value;
+        long weight;
+        long maxWeight = Long.MIN_VALUE;
+        char[] keys = new char[0];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<V>[] children = new Node[0];
+        
+        Node(String label) {
+            this.label = label;
+        }
+        
+        int childIndex(char c) {
+            return Arrays.binarySearch(keys, c);
+        }
+        
+        void addChild(Node<V> child) {
+            int insertion = -childIndex(child.label.charAt(0)) - 1;
+            keys = insert(keys, insertion, child.label.charAt(0));
+            children = insert(children, insertion, child);
+        }
+        
+        void removeChild(int index) {
+            char[] newKeys = new char[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            keys = newKeys;
+            Node<V>[] newChildren = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            children = newChildren;
+        }
+        
+        void recomputeMax() {
+            long max = value != null ? weight : Long.MIN_VALUE;
+            for (Node<V> child : children) {
+                max = Math.max(max, child.maxWeight);
+            }
+            maxWeight = max;
+        }
+        
+        private static char[] insert(char[] array, int index, char c) {
+            char[] result = new char[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = c;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+        
+        private static <T> T[] insert(T[] array, int index, T element) {
+            T[] result = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            result[index] = element;
+            return result;
+        }
+    }
+    
+    // Queue entry: either a subtree (bounded by its maxWeight) or a concrete value
+    private record Candidate<V>(Node<V> node, boolean entry, long weight) {
+    }
+    
+    private final Node<V> root = new Node<>("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Inserts or replaces the value stored under key
+    public void put(String key, V value, long weight) {
+        lock.writeLock().lock();
+        try {
+            List<Node<V>> path = new ArrayList<>();
+            Node<V> node = root;
+            int position = 0;
+            path.add(node);
+            while (position < key.length()) {
+                int index = node.childIndex(key.charAt(position));
+                if (index < 0) {
+                    Node<V> leaf = new Node<>(key.substring(position));
+                    node.addChild(leaf);
+                    node = leaf;
+                    path.add(node);
+                    position = key.length();
+                    break;
+                }
+                
+                Node<V> child = node.children[index];
+                int common = commonPrefix(child.label, key, position);
+                if (common < child.label.length()) {
+                    // Split the edge so the key ends on, or branches off, a node of its own
+                    Node<V> middle = new Node<>(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.addChild(child);
+                    middle.recomputeMax();
+                    node.children[index] = middle;
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                position += common;
+            }
+            
+            if (node.value == null) {
+                size++;
+            }
+            node.value = value;
+            node.weight = weight;
+            recomputePath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            List<Node<V>> path = findPath(key);
+            if (path == null) {
+                return;
+            }
+            Node<V> node = path.get(path.size() - 1);
+            if (node.value == null) {
+                return;
+            }
+            node.value = null;
+            size--;
+            
+            // Drop the emptied leaf and fold single-child chains back into one edge
+            if (node != root && node.children.length == 0) {
+                Node<V> parent = path.get(path.size() - 2);
+                parent.removeChild(parent.childIndex(node.label.charAt(0)));
+                path.remove(path.size() - 1);
+                node = parent;
+            }
+            if (node != root && node.value == null && node.children.length == 1) {
+                Node<V> child = node.children[0];
+                node.label = node.label + child.label;
+                node.value = child.value;
+                node.weight = child.weight;
+                node.keys = child.keys;
+                node.children = child.children;
+            }
+            recomputePath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Values whose keys start with prefix, highest weight first
+    public List<V> topK(String prefix, int k) {
+        lock.readLock().lock();
+        try {
+            List<V> results = new ArrayList<>();
+            Node<V> start = findPrefix(prefix);
+            if (start == null || k <= 0) {
+                return results;
+            }
+            
+            PriorityQueue<Candidate<V>> queue = new PriorityQueue<>(
+                    Comparator.comparingLong((Candidate<V> candidate) -> candidate.weight()).reversed());
+            queue.add(new Candidate<>(start, false, start.maxWeight));
+            while (!queue.isEmpty() && results.size() < k) {
+                Candidate<V> candidate = queue.poll();
+                Node<V> node = candidate.node();
+                if (candidate.entry()) {
+                    results.add(node.value);
+                    continue;
+                }
+                if (node.value != null) {
+                    queue.add(new Candidate<>(node, true, node.weight));
+                }
+                for (Node<V> child : node.children) {
+                    queue.add(new Candidate<>(child, false, child.maxWeight));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private List<Node<V>> findPath(String key) {
+        List<Node<V>> path = new ArrayList<>();
+        Node<V> node = root;
+        int position = 0;
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            if (!key.startsWith(node.label, position)) {
+                return null;
+            }
+            position += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+    
+    // The node whose subtree holds every key with this prefix; the prefix may end inside its edge
+    private Node<V> findPrefix(String prefix) {
+        Node<V> node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = commonPrefix(node.label, prefix, position);
+            if (position + common == prefix.length()) {
+                return node;
+            }
+            if (common < node.label.length()) {
+                return null;
+            }
+            position += common;
+        }
+        return node;
+    }
+    
+    private void recomputePath(List<Node<V>> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).recomputeMax();
+        }
+    }
+    
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
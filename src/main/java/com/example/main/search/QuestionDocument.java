@@ -0,0 +1,53 @@
+package com.example.main.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Everything about a question that is searchable: its own fields plus the text of its answers
+public class QuestionDocument {
+    
+    // Title and tag matches count for more than body matches
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 3;
+    private static final int TEXT_WEIGHT = 1;
+    private static final int ANSWER_WEIGHT = 1;
+    
+    private final long questionId;
+    private final String title;
+    private final String text;
+    private final List<String> tags;
+    private final List<String> answers;
+    
+    public QuestionDocument(long questionId, String title, String text, List<String> tags, List<String> answers) {
+        this.questionId = questionId;
+        this.title = title;
+        this.text = text;
+        this.tags = tags;
+        this.answers = answers;
+    }
+    
+    public long getQuestionId() {
+        return questionId;
+    }
+    
+    // Weighted term frequencies across all fields
+    public Map<String, Integer> termFrequencies() {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addField(frequencies, title, TITLE_WEIGHT);
+        addField(frequencies, text, TEXT_WEIGHT);
+        for (String tag : tags) {
+            addField(frequencies, tag, TAG_WEIGHT);
+        }
+        for (String answer : answers) {
+            addField(frequencies, answer, ANSWER_WEIGHT);
+        }
+        return frequencies;
+    }
+    
+    private static void addField(Map<String, Integer> frequencies, String value, int weight) {
+        for (String token : Tokenizer.tokenize(value)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.main.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Scores ranked highest first (ties by lower id) in an indexable skip list. Every forward link
+// also records how many entries it jumps over, so an id's rank and the entry at a given rank are
+// found in O(log n), the same as score updates.
+public class RankedScores {
+    
+    private static final int MAX_LEVEL = 32;
+    
+    public record Ranked(long rank, long id, BigDecimal score) {
+    }
+    
+    private static final class Node {
+        final long id;
+        final BigDecimal score;
+        final Node[] next;
+        final int[] span;  // entries between this node and next[i], counting next[i]
+        
+        Node(long id, BigDecimal score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+        
+        // Whether this node ranks before the given score and id
+        boolean before(BigDecimal otherScore, long otherId) {
+            int order = score.compareTo(otherScore);
+            return order > 0 || order == 0 && id < otherId;
+        }
+    }
+    
+    private final Node head = new Node(Long.MIN_VALUE, null, MAX_LEVEL);
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int level = 1;
+    private int length;  // linked nodes; differs from nodes.size() while an entry is being moved
+    
+    // Adds delta to the id's score (starting from zero); ids whose score drops to zero are removed
+    // when dropZero is set, which keeps windows down to the users active in them
+    public void add(long id, BigDecimal delta, boolean dropZero) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.get(id);
+            BigDecimal score = node == null ? delta : node.score.add(delta);
+            if (node != null) {
+                unlink(node);
+            }
+            if (dropZero && score.signum() == 0) {
+                nodes.remove(id);
+            } else {
+                nodes.put(id, insert(id, score));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void set(long id, BigDecimal score) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.get(id);
+            if (node != null) {
+                unlink(node);
+            }
+            nodes.put(id, insert(id, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.remove(id);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // null when the id has no score here
+    public Ranked rankOf(long id) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(id);
+            if (node == null) {
+                return null;
+            }
+            long rank = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && (x.next[i] == node || x.next[i].before(node.score, node.id))) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x == node) {
+                    break;
+                }
+            }
+            return new Ranked(rank, id, node.score);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Entries ranked offset + 1 to offset + limit
+    public List<Ranked> range(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Ranked> result = new ArrayList<>(Math.min(limit, nodes.size()));
+            if (offset >= nodes.size() || limit <= 0) {
+                return result;
+            }
+            // Skip to the entry just before the range, then walk the bottom level
+            long traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= offset) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            for (x = x.next[0]; x != null && result.size() < limit; x = x.next[0]) {
+                result.add(new Ranked(++traversed, x.id, x.score));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Node insert(long id, BigDecimal score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && x.next[i].before(score, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = length;
+            }
+            level = nodeLevel;
+        }
+        Node node = new Node(id, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+        return node;
+    }
+    
+    private void unlink(Node node) {
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i] != node && x.next[i].before(node.score, node.id)) {
+                x = x.next[i];
+            }
+            if (x.next[i] == node) {
+                x.span[i] += node.span[i] - 1;
+                x.next[i] = node.next[i];
+            } else {
+                x.span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+    
+    // Each level holds about a quarter of the one below
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        while (nodeLevel < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+} 
\ No newline at end of file
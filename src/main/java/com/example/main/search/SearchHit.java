@@ -0,0 +1,4 @@
+package com.example.main.search;
+
+public record SearchHit(long questionId, double score) {
+}
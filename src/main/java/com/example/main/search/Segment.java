@@ -0,0 +1,206 @@
+package com.example.main.search;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of a segment file written by SegmentWriter, mapped into memory.
+// Layout: documents (id, length), deletes (id), postings (id, tf, length) grouped by term,
+// UTF-8 term keys, a sorted term table (key offset, key length, postings offset, df) and a fixed footer.
+// Files over 2 GB are mapped as several overlapping windows, so all offsets are longs.
+public final class Segment {
+    
+    static final int MAGIC = 0x53554958;
+    static final int VERSION = 2;
+    static final int DOCUMENT_ENTRY_SIZE = 12;
+    static final int DELETE_ENTRY_SIZE = 8;
+    static final int POSTING_ENTRY_SIZE = 16;
+    static final int TERM_ENTRY_SIZE = 20;
+    static final int FOOTER_SIZE = 88;  // version 1 footers had no base generation and were 80 bytes
+    
+    static final long WINDOW_SIZE = 1L << 30;
+    // Windows overlap by this much, so no fixed-size entry ever straddles two of them
+    private static final int WINDOW_OVERLAP = 1 << 16;
+    
+    private final Path path;
+    private final long size;
+    private final long windowSize;
+    private final MappedByteBuffer[] windows;
+    private final long documentsOffset;
+    private final int documentCount;
+    private final long deletesOffset;
+    private final int deleteCount;
+    private final long keysOffset;
+    private final long termsOffset;
+    private final int termCount;
+    private final long totalLength;
+    private final long generation;
+    private final long baseGeneration;
+    
+    private Segment(Path path, long size, long windowSize, MappedByteBuffer[] windows) throws IOException {
+        this.path = path;
+        this.size = size;
+        this.windowSize = windowSize;
+        this.windows = windows;
+        
+        if (size < 8 || getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a search segment: " + path);
+        }
+        int version = getInt(size - 8);
+        long footer;
+        if (version == VERSION) {
+            footer = size - FOOTER_SIZE;
+        } else if (version == 1) {
+            footer = size - 80;
+        } else {
+            throw new IOException("Unsupported segment version in " + path);
+        }
+        this.documentsOffset = getLong(footer);
+        this.documentCount = getInt(footer + 8);
+        this.deletesOffset = getLong(footer + 12);
+        this.deleteCount = getInt(footer + 20);
+        this.keysOffset = getLong(footer + 32);
+        this.termsOffset = getLong(footer + 44);
+        this.termCount = getInt(footer + 52);
+        this.totalLength = getLong(footer + 56);
+        this.generation = getLong(footer + 64);
+        // A merged segment replaces every segment from its base generation up to its own
+        this.baseGeneration = version == VERSION ? getLong(footer + 72) : generation;
+    }
+    
+    public static Segment open(Path path) throws IOException {
+        return open(path, WINDOW_SIZE);
+    }
+    
+    // The window size is only lowered by tests, to cover files spanning several windows
+    static Segment open(Path path, long windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, (size + windowSize - 1) / windowSize);
+            MappedByteBuffer[] windows = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * windowSize;
+                long length = Math.min(size - start, windowSize + WINDOW_OVERLAP);
+                // The mappings stay valid after the channel is closed
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                windows[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new Segment(path, size, windowSize, windows);
+        }
+    }
+    
+    public Path path() {
+        return path;
+    }
+    
+    // File size, which the merge policy uses to tier segments
+    public long sizeInBytes() {
+        return size;
+    }
+    
+    public long generation() {
+        return generation;
+    }
+    
+    public long baseGeneration() {
+        return baseGeneration;
+    }
+    
+    public int documentCount() {
+        return documentCount;
+    }
+    
+    public long totalLength() {
+        return totalLength;
+    }
+    
+    public long documentId(int index) {
+        return getLong(documentsOffset + (long) index * DOCUMENT_ENTRY_SIZE);
+    }
+    
+    public int documentLength(int index) {
+        return getInt(documentsOffset + (long) index * DOCUMENT_ENTRY_SIZE + 8);
+    }
+    
+    public int deleteCount() {
+        return deleteCount;
+    }
+    
+    public long deletedId(int index) {
+        return getLong(deletesOffset + (long) index * DELETE_ENTRY_SIZE);
+    }
+    
+    public int termCount() {
+        return termCount;
+    }
+    
+    public String term(int index) {
+        long entry = termsOffset + (long) index * TERM_ENTRY_SIZE;
+        byte[] key = new byte[getInt(entry + 4)];
+        getBytes(keysOffset + getInt(entry), key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+    
+    public int documentFrequency(int index) {
+        return getInt(termsOffset + (long) index * TERM_ENTRY_SIZE + 16);
+    }
+    
+    // Binary search over the sorted term table; returns -1 when the term is absent
+    public int findTerm(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = term(middle).compareTo(term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+    
+    public void forEachPosting(int termIndex, PostingConsumer consumer) {
+        long entry = termsOffset + (long) termIndex * TERM_ENTRY_SIZE;
+        long offset = getLong(entry + 8);
+        int count = getInt(entry + 16);
+        for (int i = 0; i < count; i++, offset += POSTING_ENTRY_SIZE) {
+            consumer.accept(getLong(offset), getInt(offset + 8), getInt(offset + 12));
+        }
+    }
+    
+    // Removes the file once it is no longer part of the index
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+    
+    private long getLong(long position) {
+        return windows[(int) (position / windowSize)].getLong((int) (position % windowSize));
+    }
+    
+    private int getInt(long position) {
+        return windows[(int) (position / windowSize)].getInt((int) (position % windowSize));
+    }
+    
+    private void getBytes(long position, byte[] target) {
+        int offset = (int) (position % windowSize);
+        MappedByteBuffer window = windows[(int) (position / windowSize)];
+        if (offset + target.length <= window.capacity()) {
+            window.get(offset, target);
+        } else {
+            // Longer than the overlap; copy across the window boundary
+            for (int i = 0; i < target.length; i++) {
+                long at = position + i;
+                target[i] = windows[(int) (at / windowSize)].get((int) (at % windowSize));
+            }
+        }
+    }
+}
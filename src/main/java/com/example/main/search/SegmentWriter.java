@@ -0,0 +1,197 @@
+package com.example.main.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Streams one immutable segment file. Sections must be written in file order:
+// documents, then deletes, then terms in ascending order, each followed by its postings.
+// The file is written under a temporary name and atomically renamed by commit(), replacing
+// any file of the same name (a merge output takes over the name of its newest source).
+public class SegmentWriter implements Closeable {
+    
+    private static final int DOCUMENTS = 0;
+    private static final int DELETES = 1;
+    private static final int TERMS = 2;
+    private static final int DONE = 3;
+    
+    private final Path target;
+    private final Path temporary;
+    private final long generation;
+    private final long baseGeneration;
+    private final DataOutputStream out;
+    private long position;
+    private int section = DOCUMENTS;
+    
+    private int documentCount;
+    private long totalLength;
+    private long deletesOffset;
+    private int deleteCount;
+    private long postingsOffset;
+    
+    // Term table is buffered; it is small next to the postings it points at
+    private final ByteArrayOutputStream keys = new ByteArrayOutputStream();
+    private int[] keyOffsets = new int[1024];
+    private int[] keyLengths = new int[1024];
+    private long[] termPostingsOffsets = new long[1024];
+    private int[] documentFrequencies = new int[1024];
+    private int termCount;
+    private String currentTerm;
+    private String lastTerm;
+    
+    public SegmentWriter(Path target, long generation) throws IOException {
+        this(target, generation, generation);
+    }
+    
+    // A merge output takes the generation of its newest source and replaces all sources back to baseGeneration
+    public SegmentWriter(Path target, long generation, long baseGeneration) throws IOException {
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        this.generation = generation;
+        this.baseGeneration = baseGeneration;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+    }
+    
+    public void addDocument(long questionId, int length) throws IOException {
+        requireSection(DOCUMENTS);
+        out.writeLong(questionId);
+        out.writeInt(length);
+        position += Segment.DOCUMENT_ENTRY_SIZE;
+        documentCount++;
+        totalLength += length;
+    }
+    
+    public void addDelete(long questionId) throws IOException {
+        advanceTo(DELETES);
+        out.writeLong(questionId);
+        position += Segment.DELETE_ENTRY_SIZE;
+        deleteCount++;
+    }
+    
+    public void startTerm(String term) throws IOException {
+        advanceTo(TERMS);
+        if (currentTerm != null) {
+            throw new IllegalStateException("Term " + currentTerm + " is still open");
+        }
+        if (lastTerm != null && term.compareTo(lastTerm) <= 0) {
+            throw new IllegalStateException("Terms must be added in ascending order: " + term);
+        }
+        if (termCount == keyOffsets.length) {
+            int capacity = termCount * 2;
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            termPostingsOffsets = Arrays.copyOf(termPostingsOffsets, capacity);
+            documentFrequencies = Arrays.copyOf(documentFrequencies, capacity);
+        }
+        currentTerm = term;
+        termPostingsOffsets[termCount] = position;
+        documentFrequencies[termCount] = 0;
+    }
+    
+    public void addPosting(long questionId, int frequency, int documentLength) throws IOException {
+        if (currentTerm == null) {
+            throw new IllegalStateException("No term started");
+        }
+        out.writeLong(questionId);
+        out.writeInt(frequency);
+        out.writeInt(documentLength);
+        position += Segment.POSTING_ENTRY_SIZE;
+        documentFrequencies[termCount]++;
+    }
+    
+    // Terms that ended up without postings are dropped from the term table
+    public void endTerm() {
+        if (currentTerm == null) {
+            throw new IllegalStateException("No term started");
+        }
+        if (documentFrequencies[termCount] > 0) {
+            byte[] key = currentTerm.getBytes(StandardCharsets.UTF_8);
+            keyOffsets[termCount] = keys.size();
+            keyLengths[termCount] = key.length;
+            keys.writeBytes(key);
+            termCount++;
+            lastTerm = currentTerm;
+        }
+        currentTerm = null;
+    }
+    
+    public void commit() throws IOException {
+        advanceTo(TERMS);
+        if (currentTerm != null) {
+            throw new IllegalStateException("Term " + currentTerm + " is still open");
+        }
+        section = DONE;
+        
+        long keysOffset = position;
+        keys.writeTo(out);
+        position += keys.size();
+        
+        long termsOffset = position;
+        for (int i = 0; i < termCount; i++) {
+            out.writeInt(keyOffsets[i]);
+            out.writeInt(keyLengths[i]);
+            out.writeLong(termPostingsOffsets[i]);
+            out.writeInt(documentFrequencies[i]);
+        }
+        position += (long) termCount * Segment.TERM_ENTRY_SIZE;
+        
+        out.writeLong(0);
+        out.writeInt(documentCount);
+        out.writeLong(deletesOffset);
+        out.writeInt(deleteCount);
+        out.writeLong(postingsOffset);
+        out.writeLong(keysOffset);
+        out.writeInt(keys.size());
+        out.writeLong(termsOffset);
+        out.writeInt(termCount);
+        out.writeLong(totalLength);
+        out.writeLong(generation);
+        out.writeLong(baseGeneration);
+        out.writeInt(Segment.VERSION);
+        out.writeInt(Segment.MAGIC);
+        out.close();
+        
+        // Make the bytes durable before the rename publishes the segment
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    // Closing without commit() discards the partial file
+    @Override
+    public void close() throws IOException {
+        if (section != DONE) {
+            out.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+    
+    private void requireSection(int expected) {
+        if (section != expected) {
+            throw new IllegalStateException("Segment sections must be written in order");
+        }
+    }
+    
+    private void advanceTo(int next) {
+        if (section > next) {
+            throw new IllegalStateException("Segment sections must be written in order");
+        }
+        if (section < DELETES && next >= DELETES) {
+            deletesOffset = position;
+        }
+        if (section < TERMS && next >= TERMS) {
+            postingsOffset = position;
+        }
+        section = next;
+    }
+}
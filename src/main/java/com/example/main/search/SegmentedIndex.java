@@ -0,0 +1,549 @@
+package com.example.main.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Log-structured search index over one directory. Changes go to an in-memory InvertedIndex which
+// flush() writes out as an immutable, memory-mapped segment file; merge() compacts runs of adjacent,
+// similar-sized segments (tiered), so every document is rewritten O(log n) times and no segment grows
+// past the size cap. Every document maps to the generation holding its live version, so stale copies
+// are skipped at query time. A merge keeps the newest on-disk copy of a document until a newer one is
+// on disk too, so a crash never loses more than the unflushed changes; the CHECKPOINT file records how
+// far the flushed segments reach, for the caller to replay the rest from its source of truth.
+// search/index/remove are thread-safe; flush and merge must be called from one maintenance thread.
+public class SegmentedIndex {
+    
+    // Best hit first; equal scores favour the newer question
+    static final Comparator<SearchHit> RANKING = Comparator
+            .comparingDouble(SearchHit::score).reversed()
+            .thenComparing(Comparator.comparingLong(SearchHit::questionId).reversed());
+    
+    private static final long ACTIVE = Long.MAX_VALUE;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "CHECKPOINT";
+    
+    // A run is merged only if no segment in it is more than this share of the run's total size
+    private static final double MAX_RUN_SKEW = 0.5;
+    
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Question id -> generation of the segment (or ACTIVE memtable) holding its current version
+    private final Map<Long, Long> liveGeneration = new HashMap<>();
+    // Generation -> documents whose live version it holds, to find segments worth expunging
+    private final Map<Long, Integer> liveCounts = new HashMap<>();
+    // Ordered by generation
+    private final List<Segment> segments = new ArrayList<>();
+    
+    private InvertedIndex active = new InvertedIndex();
+    private Set<Long> activeDeletes = new HashSet<>();
+    
+    // Memtable being written to disk; stays searchable until its segment is opened
+    private InvertedIndex frozen;
+    private Set<Long> frozenDeletes;
+    private long frozenGeneration = -1;
+    private long frozenCheckpoint;
+    
+    private long nextGeneration = 1;
+    private volatile long checkpoint;
+    
+    private SegmentedIndex(Path directory) {
+        this.directory = directory;
+    }
+    
+    public static SegmentedIndex open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        SegmentedIndex index = new SegmentedIndex(directory);
+        index.load();
+        return index;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveGeneration.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Caller-defined position (such as a timestamp) up to which all changes are in flushed segments
+    public long checkpoint() {
+        return checkpoint;
+    }
+    
+    // Ids of all live documents, ascending
+    public long[] documentIds() {
+        lock.readLock().lock();
+        try {
+            return liveGeneration.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void index(QuestionDocument document) {
+        lock.writeLock().lock();
+        try {
+            active.index(document);
+            activeDeletes.remove(document.getQuestionId());
+            setLive(document.getQuestionId(), ACTIVE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long questionId) {
+        lock.writeLock().lock();
+        try {
+            active.remove(questionId);
+            setLive(questionId, null);
+            // Tombstone hides copies already written to segments, also after a restart
+            activeDeletes.add(questionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Returns up to maxHits documents matching any query term, ranked by BM25.
+    // Collection statistics include shadowed copies until the next merge, which only nudges idf slightly.
+    public List<SearchHit> search(String query, int maxHits) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || maxHits <= 0) {
+            return List.of();
+        }
+        
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            long documentCount = active.size() + (frozen != null ? frozen.size() : 0);
+            long totalLength = active.totalLength() + (frozen != null ? frozen.totalLength() : 0);
+            for (Segment segment : segments) {
+                documentCount += segment.documentCount();
+                totalLength += segment.totalLength();
+            }
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            
+            int[] termIndexes = new int[segments.size()];
+            for (String term : terms) {
+                long documentFrequency = active.documentFrequency(term)
+                        + (frozen != null ? frozen.documentFrequency(term) : 0);
+                for (int i = 0; i < segments.size(); i++) {
+                    termIndexes[i] = segments.get(i).findTerm(term);
+                    if (termIndexes[i] >= 0) {
+                        documentFrequency += segments.get(i).documentFrequency(termIndexes[i]);
+                    }
+                }
+                if (documentFrequency == 0) {
+                    continue;
+                }
+                
+                double idf = Bm25.idf(documentCount, documentFrequency);
+                active.forEachPosting(term, scorer(scores, ACTIVE, idf, averageLength));
+                if (frozen != null) {
+                    frozen.forEachPosting(term, scorer(scores, frozenGeneration, idf, averageLength));
+                }
+                for (int i = 0; i < segments.size(); i++) {
+                    if (termIndexes[i] >= 0) {
+                        Segment segment = segments.get(i);
+                        segment.forEachPosting(termIndexes[i], scorer(scores, segment.generation(), idf, averageLength));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        return topHits(scores, maxHits);
+    }
+    
+    // Writes the memtable to a new segment, then records the checkpoint, which the caller takes before
+    // calling so that it covers no change made after the memtable was frozen. A failed write keeps the
+    // frozen memtable (with its checkpoint) and is retried next time.
+    public void flush(long newCheckpoint) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (frozen == null) {
+                if (active.size() == 0 && activeDeletes.isEmpty()) {
+                    if (newCheckpoint > checkpoint) {
+                        writeCheckpoint(newCheckpoint);
+                    }
+                    return;
+                }
+                frozen = active;
+                frozenDeletes = activeDeletes;
+                frozenGeneration = nextGeneration++;
+                frozenCheckpoint = newCheckpoint;
+                for (Long questionId : frozen.documentLengths().keySet()) {
+                    setLive(questionId, frozenGeneration);
+                }
+                active = new InvertedIndex();
+                activeDeletes = new HashSet<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        // The frozen memtable no longer changes, so it is written without holding the lock
+        Path path = segmentPath(frozenGeneration);
+        try (SegmentWriter writer = new SegmentWriter(path, frozenGeneration)) {
+            for (Map.Entry<Long, Integer> document : frozen.documentLengths().entrySet()) {
+                writer.addDocument(document.getKey(), document.getValue());
+            }
+            for (Long questionId : frozenDeletes) {
+                writer.addDelete(questionId);
+            }
+            for (String term : frozen.sortedTerms()) {
+                writer.startTerm(term);
+                List<long[]> postings = new ArrayList<>();
+                frozen.forEachPosting(term, (questionId, frequency, length) ->
+                        postings.add(new long[] {questionId, frequency, length}));
+                for (long[] posting : postings) {
+                    writer.addPosting(posting[0], (int) posting[1], (int) posting[2]);
+                }
+                writer.endTerm();
+            }
+            writer.commit();
+        }
+        Segment segment = Segment.open(path);
+        
+        lock.writeLock().lock();
+        try {
+            segments.add(segment);
+            frozen = null;
+            frozenDeletes = null;
+            frozenGeneration = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (frozenCheckpoint > checkpoint) {
+            writeCheckpoint(frozenCheckpoint);
+        }
+    }
+    
+    // Runs tiered merges until none is due; returns how many ran. Each merge takes mergeFactor adjacent
+    // segments of similar size whose total stays under maxSegmentBytes. A segment that can no longer
+    // be merged that way but holds mostly stale copies is rewritten on its own.
+    public int merge(int mergeFactor, long maxSegmentBytes) throws IOException {
+        int merges = 0;
+        List<Segment> run;
+        while ((run = pickRun(mergeFactor, maxSegmentBytes)) != null) {
+            Segment merged = mergeRun(run);
+            merges++;
+            if (run.size() == 1 && merged.documentCount() == run.get(0).documentCount()) {
+                // Its stale copies are only superseded in memory so far
+                break;
+            }
+        }
+        return merges;
+    }
+    
+    private List<Segment> pickRun(int mergeFactor, long maxSegmentBytes) {
+        lock.readLock().lock();
+        try {
+            List<Segment> best = null;
+            double bestSkew = MAX_RUN_SKEW;
+            for (int start = 0; start + mergeFactor <= segments.size(); start++) {
+                List<Segment> run = segments.subList(start, start + mergeFactor);
+                long total = 0;
+                long largest = 0;
+                for (Segment segment : run) {
+                    total += segment.sizeInBytes();
+                    largest = Math.max(largest, segment.sizeInBytes());
+                }
+                double skew = (double) largest / Math.max(1, total);
+                if (total <= maxSegmentBytes && skew <= bestSkew) {
+                    best = new ArrayList<>(run);
+                    bestSkew = skew;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+            
+            Segment stalest = null;
+            int mostStale = 0;
+            for (Segment segment : segments) {
+                int stale = segment.documentCount() - liveCounts.getOrDefault(segment.generation(), 0);
+                if (stale * 2 > segment.documentCount() && stale > mostStale) {
+                    stalest = segment;
+                    mostStale = stale;
+                }
+            }
+            return stalest == null ? null : List.of(stalest);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Rewrites a run of adjacent segments as one that takes the newest source's generation, so it keeps
+    // its place in the replay order. Within the run the newest copy or tombstone of each document wins.
+    // Copies are dropped only once a newer version or tombstone is in a later segment; tombstones only
+    // when no older segment is left for them to hide anything in.
+    private Segment mergeRun(List<Segment> run) throws IOException {
+        long generation = run.get(run.size() - 1).generation();
+        long baseGeneration = run.get(0).baseGeneration();
+        boolean olderSegments;
+        Map<Long, Long> live;
+        Set<Long> segmentGenerations = new HashSet<>();
+        Set<Long> unflushedDeletes = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            olderSegments = segments.indexOf(run.get(0)) > 0;
+            live = new HashMap<>(liveGeneration);
+            unflushedDeletes.addAll(activeDeletes);
+            if (frozenDeletes != null) {
+                unflushedDeletes.addAll(frozenDeletes);
+            }
+            for (Segment segment : segments) {
+                segmentGenerations.add(segment.generation());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        // Question id -> generation of the source whose copy is kept
+        Map<Long, Long> kept = new HashMap<>();
+        List<Long> tombstones = new ArrayList<>();
+        Set<Long> decided = new HashSet<>();
+        for (int s = run.size() - 1; s >= 0; s--) {
+            Segment source = run.get(s);
+            for (int i = 0; i < source.deleteCount(); i++) {
+                long questionId = source.deletedId(i);
+                if (decided.add(questionId) && olderSegments) {
+                    tombstones.add(questionId);
+                }
+            }
+            for (int i = 0; i < source.documentCount(); i++) {
+                long questionId = source.documentId(i);
+                if (decided.add(questionId)) {
+                    Long current = live.get(questionId);
+                    boolean newerOnDisk = current == null
+                            ? !unflushedDeletes.contains(questionId)
+                            : current > generation && segmentGenerations.contains(current);
+                    if (!newerOnDisk) {
+                        kept.put(questionId, source.generation());
+                    }
+                }
+            }
+        }
+        
+        Path path = segmentPath(generation);
+        try (SegmentWriter writer = new SegmentWriter(path, generation, baseGeneration)) {
+            for (Segment source : run) {
+                for (int i = 0; i < source.documentCount(); i++) {
+                    if (isLive(kept, source.documentId(i), source.generation())) {
+                        writer.addDocument(source.documentId(i), source.documentLength(i));
+                    }
+                }
+            }
+            for (Long questionId : tombstones) {
+                writer.addDelete(questionId);
+            }
+            
+            // k-way merge over the sorted term tables
+            int[] positions = new int[run.size()];
+            String[] heads = new String[run.size()];
+            for (int i = 0; i < run.size(); i++) {
+                heads[i] = run.get(i).termCount() > 0 ? run.get(i).term(0) : null;
+            }
+            while (true) {
+                String term = null;
+                for (String head : heads) {
+                    if (head != null && (term == null || head.compareTo(term) < 0)) {
+                        term = head;
+                    }
+                }
+                if (term == null) {
+                    break;
+                }
+                
+                writer.startTerm(term);
+                for (int i = 0; i < run.size(); i++) {
+                    if (!term.equals(heads[i])) {
+                        continue;
+                    }
+                    Segment source = run.get(i);
+                    List<long[]> postings = new ArrayList<>();
+                    source.forEachPosting(positions[i], (questionId, frequency, length) -> {
+                        if (isLive(kept, questionId, source.generation())) {
+                            postings.add(new long[] {questionId, frequency, length});
+                        }
+                    });
+                    for (long[] posting : postings) {
+                        writer.addPosting(posting[0], (int) posting[1], (int) posting[2]);
+                    }
+                    positions[i]++;
+                    heads[i] = positions[i] < source.termCount() ? source.term(positions[i]) : null;
+                }
+                writer.endTerm();
+            }
+            writer.commit();
+        }
+        Segment merged = Segment.open(path);
+        
+        lock.writeLock().lock();
+        try {
+            // Documents changed or deleted during the merge keep pointing at their newer version
+            for (Map.Entry<Long, Long> copy : kept.entrySet()) {
+                if (copy.getValue().equals(liveGeneration.get(copy.getKey()))) {
+                    setLive(copy.getKey(), generation);
+                }
+            }
+            int position = segments.indexOf(run.get(0));
+            segments.removeAll(run);
+            segments.add(position, merged);
+            for (Segment source : run) {
+                if (source.generation() != generation) {
+                    liveCounts.remove(source.generation());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        // Readers never outlive the swap above, so the old files can go; the newest source's file was
+        // already replaced by the merged one
+        for (Segment source : run) {
+            if (source.generation() != generation) {
+                source.delete();
+            }
+        }
+        return merged;
+    }
+    
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left behind by a write that never committed
+                    Files.delete(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        }
+        
+        List<Segment> opened = new ArrayList<>();
+        for (Path file : files) {
+            opened.add(Segment.open(file));
+        }
+        opened.sort(Comparator.comparingLong(Segment::generation));
+        
+        // Sources of a merge that completed just before a crash are covered by the merged segment
+        List<Segment> obsolete = new ArrayList<>();
+        for (Segment segment : opened) {
+            for (Segment merged : opened) {
+                if (merged.baseGeneration() <= segment.generation() && segment.generation() < merged.generation()) {
+                    obsolete.add(segment);
+                    break;
+                }
+            }
+        }
+        for (Segment segment : obsolete) {
+            opened.remove(segment);
+            segment.delete();
+        }
+        
+        // Replay in generation order; a segment never holds both a document and its tombstone
+        for (Segment segment : opened) {
+            for (int i = 0; i < segment.deleteCount(); i++) {
+                setLive(segment.deletedId(i), null);
+            }
+            for (int i = 0; i < segment.documentCount(); i++) {
+                setLive(segment.documentId(i), segment.generation());
+            }
+            nextGeneration = Math.max(nextGeneration, segment.generation() + 1);
+        }
+        segments.addAll(opened);
+        
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointFile)) {
+            checkpoint = Long.parseLong(Files.readString(checkpointFile, StandardCharsets.UTF_8).trim());
+        }
+    }
+    
+    private void writeCheckpoint(long newCheckpoint) throws IOException {
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temporary, Long.toString(newCheckpoint), StandardCharsets.UTF_8);
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpoint = newCheckpoint;
+    }
+    
+    // null removes the document
+    private void setLive(long questionId, Long generation) {
+        Long previous = generation == null ? liveGeneration.remove(questionId) : liveGeneration.put(questionId, generation);
+        if (previous != null) {
+            liveCounts.merge(previous, -1, Integer::sum);
+        }
+        if (generation != null) {
+            liveCounts.merge(generation, 1, Integer::sum);
+        }
+    }
+    
+    private Path segmentPath(long generation) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+    
+    private PostingConsumer scorer(Map<Long, Double> scores, long generation, double idf, double averageLength) {
+        return (questionId, frequency, length) -> {
+            if (isLive(liveGeneration, questionId, generation)) {
+                scores.merge(questionId, Bm25.score(idf, frequency, length, averageLength), Double::sum);
+            }
+        };
+    }
+    
+    private static boolean isLive(Map<Long, Long> live, long questionId, long generation) {
+        Long current = live.get(questionId);
+        return current != null && current == generation;
+    }
+    
+    static List<SearchHit> topHits(Map<Long, Double> scores, int maxHits) {
+        // Min-heap on ranking keeps only the best maxHits candidates
+        PriorityQueue<SearchHit> heap = new PriorityQueue<>(RANKING.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            heap.offer(new SearchHit(entry.getKey(), entry.getValue()));
+            if (heap.size() > maxHits) {
+                heap.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(heap);
+        hits.sort(RANKING);
+        return hits;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.main.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public final class Tokenizer {
+    
+    private static final int MAX_TOKEN_LENGTH = 64;
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into",
+            "is", "it", "of", "on", "or", "so", "such", "that", "the", "their", "then", "there",
+            "these", "they", "this", "to", "was", "will", "with");
+    
+    private Tokenizer() {
+    }
+    
+    // Lower-cased runs of letters and digits; '+' and '#' are kept inside a token so "c++" and "c#" survive
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || ((c == '+' || c == '#') && current.length() > 0)) {
+                current.append(c);
+            } else {
+                addToken(tokens, current);
+            }
+        }
+        addToken(tokens, current);
+        return tokens;
+    }
+    
+    private static void addToken(List<String> tokens, StringBuilder current) {
+        if (current.length() > 0 && current.length() <= MAX_TOKEN_LENGTH) {
+            String token = current.toString().toLowerCase(Locale.ROOT);
+            if (!STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        current.setLength(0);
+    }
+}
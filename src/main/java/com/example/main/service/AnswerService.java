@@ -1,14 +1,17 @@
 package com.example.main.service;
 
 import com.example.main.dto.AnswerDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
 import com.example.main.model.Answer;
 import com.example.main.model.Question;
 import com.example.main.model.User;
-import com.example.main.model.Vote;
 import com.example.main.repository.AnswerRepository;
-import com.example.main.repository.VoteRepository;
+import com.example.main.service.QuestionVersionService.VersionStamp;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,44 +30,46 @@ public class AnswerService {
     private QuestionService questionService;
     
     @Autowired
-    private VoteRepository voteRepository;
+    private ApplicationEventPublisher eventPublisher;
     
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    @Autowired
+    private QuestionVersionService questionVersionService;
+    
+    @Transactional(readOnly = true)
     public List<AnswerDto> getAllAnswers() {
         return answerRepository.findAll().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<AnswerDto> getAnswerById(Long id) {
-        return answerRepository.findById(id)
+        return answerRepository.findDetailedByAnswerId(id)
                 .map(this::convertToDto);
     }
     
+    // Not transactional, so a cache hit never takes a connection; the query fetches question and author
     public List<AnswerDto> getAnswersByQuestion(Long questionId) {
-        Question question = questionService.findQuestionEntityById(questionId);
-        if (question == null) {
-            return List.of();
-        }
-        return answerRepository.findByQuestion(question).stream()
-                .sorted((a1, a2) -> {
-                    // Sort by vote count (descending)
-                    List<Vote> votes1 = voteRepository.findByAnswer(a1);
-                    List<Vote> votes2 = voteRepository.findByAnswer(a2);
-                    
-                    int upvotes1 = (int) votes1.stream().filter(v -> "upvote".equals(v.getVoteType())).count();
-                    int downvotes1 = (int) votes1.stream().filter(v -> "downvote".equals(v.getVoteType())).count();
-                    int voteCount1 = upvotes1 - downvotes1;
-                    
-                    int upvotes2 = (int) votes2.stream().filter(v -> "upvote".equals(v.getVoteType())).count();
-                    int downvotes2 = (int) votes2.stream().filter(v -> "downvote".equals(v.getVoteType())).count();
-                    int voteCount2 = upvotes2 - downvotes2;
-                    
-                    return Integer.compare(voteCount2, voteCount1);
-                })
+        Optional<VersionStamp> version = questionVersionService.getVersion(questionId);
+        // No such question: nothing worth caching
+        return version.isPresent() ? getAnswersByQuestion(questionId, version.get()) : loadAnswers(questionId);
+    }
+    
+    // At least as new as the given stamp, so the stamp's ETag never claims a newer body than this
+    public List<AnswerDto> getAnswersByQuestion(Long questionId, VersionStamp version) {
+        return questionCacheService.getAnswers(questionId, version, this::loadAnswers);
+    }
+    
+    private List<AnswerDto> loadAnswers(Long questionId) {
+        return answerRepository.findByQuestionIdOrderByScore(questionId).stream()
                 .map(this::convertToDto)
-                .collect(Collectors.toList());
+                .collect(Collectors.toUnmodifiableList());
     }
     
+    @Transactional(readOnly = true)
     public List<AnswerDto> getAnswersByAuthor(Long authorId) {
         User author = userService.findUserEntityById(authorId);
         if (author == null) {
@@ -75,6 +80,7 @@ public class AnswerService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional
     public AnswerDto createAnswer(Long questionId, Long authorId, String text, String image) {
         Question question = questionService.findQuestionEntityById(questionId);
         User author = userService.findUserEntityById(authorId);
@@ -95,6 +101,7 @@ public class AnswerService {
         answer.setImage(image);
         
         Answer savedAnswer = answerRepository.save(answer);
+        eventPublisher.publishEvent(new QuestionChangedEvent(questionId, Change.ANSWERS));
         
         // Update question status to "in progress" if this is the first answer
         if (answerRepository.findByQuestion(question).size() == 1 && "received".equals(question.getStatus())) {
@@ -109,6 +116,7 @@ public class AnswerService {
         return convertToDto(savedAnswer);
     }
     
+    @Transactional
     public Optional<AnswerDto> updateAnswer(Long id, String text, String image) {
         return answerRepository.findById(id)
                 .map(answer -> {
@@ -118,13 +126,19 @@ public class AnswerService {
                     if (image != null) {
                         answer.setImage(image);
                     }
-                    return convertToDto(answerRepository.save(answer));
+                    Answer savedAnswer = answerRepository.save(answer);
+                    eventPublisher.publishEvent(new QuestionChangedEvent(answer.getQuestion().getQuestionId(), Change.ANSWERS));
+                    return convertToDto(savedAnswer);
                 });
     }
     
+    @Transactional
     public boolean deleteAnswer(Long id) {
-        if (answerRepository.existsById(id)) {
-            answerRepository.deleteById(id);
+        Optional<Answer> answer = answerRepository.findById(id);
+        if (answer.isPresent()) {
+            Long questionId = answer.get().getQuestion().getQuestionId();
+            answerRepository.delete(answer.get());
+            eventPublisher.publishEvent(new QuestionChangedEvent(questionId, Change.ANSWERS));
             return true;
         }
         return false;
@@ -148,10 +162,8 @@ public class AnswerService {
             dto.setAccepted(false);
         }
         
-        // Count votes
-        List<Vote> votes = voteRepository.findByAnswer(answer);
-        dto.setUpvotes((int) votes.stream().filter(v -> "upvote".equals(v.getVoteType())).count());
-        dto.setDownvotes((int) votes.stream().filter(v -> "downvote".equals(v.getVoteType())).count());
+        dto.setUpvotes(answer.getUpvoteCount());
+        dto.setDownvotes(answer.getDownvoteCount());
         
         return dto;
     }
@@ -0,0 +1,67 @@
+package com.example.main.service;
+
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Author/moderator checks for the controllers. Ownership comes from id-only queries and the
+// moderator ids are held in memory: UserService updates them on every change it makes and a
+// periodic refresh picks up changes made directly in the database.
+@Service
+public class AuthorizationService {
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private AnswerRepository answerRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    // Replaced as a whole on every change, so readers never lock
+    private volatile Set<Long> moderatorIds;
+    
+    public boolean isModerator(Long userId) {
+        Set<Long> moderators = moderatorIds;
+        if (moderators == null) {
+            moderators = refreshModerators();
+        }
+        return userId != null && moderators.contains(userId);
+    }
+    
+    // False when the question does not exist, whoever is asking
+    public boolean isQuestionAuthorOrModerator(Long questionId, Long userId) {
+        return questionRepository.findAuthorIdByQuestionId(questionId)
+                .map(authorId -> authorId.equals(userId) || isModerator(userId))
+                .orElse(false);
+    }
+    
+    public boolean isAnswerAuthorOrModerator(Long answerId, Long userId) {
+        return answerRepository.findAuthorIdByAnswerId(answerId)
+                .map(authorId -> authorId.equals(userId) || isModerator(userId))
+                .orElse(false);
+    }
+    
+    public synchronized void moderatorChanged(Long userId, boolean moderator) {
+        Set<Long> moderators = new HashSet<>(moderatorIds != null ? moderatorIds : Set.of());
+        if (moderator) {
+            moderators.add(userId);
+        } else {
+            moderators.remove(userId);
+        }
+        moderatorIds = Set.copyOf(moderators);
+    }
+    
+    @Scheduled(fixedDelayString = "${stackunderflow.auth.moderator-refresh-ms:60000}")
+    public synchronized Set<Long> refreshModerators() {
+        moderatorIds = Set.copyOf(userRepository.findModeratorIds());
+        return moderatorIds;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.main.service;
+
+import com.example.main.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Ban flags by user id for the request interceptor. UserService writes through on every ban change,
+// and the TTL only bounds staleness for changes made outside this application.
+@Service
+public class BanStatusService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${stackunderflow.auth.ban-cache.max-size:100000}")
+    private long maxSize;
+    
+    @Value("${stackunderflow.auth.ban-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private LoadingCache<Long, Boolean> bannedByUserId;
+    
+    @PostConstruct
+    public void init() {
+        bannedByUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(userId -> userRepository.findBannedByUserId(userId).orElse(false));
+        CaffeineCacheMetrics.monitor(meterRegistry, bannedByUserId, "banStatus");
+    }
+    
+    // Unknown users count as not banned, and that answer is cached too
+    public boolean isBanned(Long userId) {
+        return bannedByUserId.get(userId);
+    }
+    
+    // Replaces the entry once the new state is committed; an in-flight load for the same id finishes first
+    public void update(Long userId, boolean banned) {
+        bannedByUserId.put(userId, banned);
+    }
+    
+    // For callers inside the transaction that changes the flag: a load between now and the commit
+    // would still read the old value, so the entry is replaced only after the commit, and not at all
+    // if the transaction rolls back
+    public void updateAfterCommit(Long userId, boolean banned) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(userId, banned);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(userId, banned);
+            }
+        });
+    }
+    
+    public void invalidate(Long userId) {
+        bannedByUserId.invalidate(userId);
+    }
+}
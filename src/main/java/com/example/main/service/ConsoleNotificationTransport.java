@@ -0,0 +1,32 @@
+package com.example.main.service;
+
+import com.example.main.model.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Local stand-in for the email and SMS providers: prints each message. A real transport
+// (JavaMailSender, Twilio, ...) replaces this bean. The failure rate makes sends fail at random
+// so retries can be exercised in tests.
+@Service
+public class ConsoleNotificationTransport implements NotificationTransport {
+    
+    @Value("${stackunderflow.notifications.console.failure-rate:0}")
+    private double failureRate;
+    
+    @Override
+    public void send(OutboxMessage message) {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated " + message.getChannel() + " provider failure");
+        }
+        if ("email".equals(message.getChannel())) {
+            System.out.println("Sending email to: " + message.getRecipient());
+            System.out.println("Subject: " + message.getSubject());
+            System.out.println("Body: " + message.getBody());
+        } else {
+            System.out.println("Sending SMS to: " + message.getRecipient());
+            System.out.println("Message: " + message.getBody());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,317 @@
+package com.example.main.service;
+
+import com.example.main.dto.LeaderboardEntryDto;
+import com.example.main.model.ReputationLedgerEntry;
+import com.example.main.model.User;
+import com.example.main.repository.ReputationLedgerRepository;
+import com.example.main.repository.UserRepository;
+import com.example.main.search.RankedScores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Reputation leaderboards kept in memory as ranked skip lists, so a page of the board and a
+// user's own rank cost O(log n) instead of sorting the users table. "all" ranks total scores;
+// "month" and "week" rank what users gained over the last 30 and 7 days (today included).
+// Committed score changes come in from ScoreService, and the windows keep per-day sums so the
+// oldest day can be taken out when the date moves on. Other instances' votes and replayed
+// ledger entries are picked up by the periodic reload.
+@Service
+public class LeaderboardService {
+    
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+    
+    public static final int MAX_LIMIT = 100;
+    
+    private static final int LOAD_CHUNK_SIZE = 5000;
+    private static final int WEEK_DAYS = 7;
+    private static final int MONTH_DAYS = 30;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ReputationLedgerRepository reputationLedgerRepository;
+    
+    @Autowired
+    private ReputationLedgerService reputationLedgerService;
+    
+    // A change made while a reload runs, kept to be replayed on the reloaded boards. day is null
+    // for changes to the total only.
+    private record Change(long sequence, long userId, LocalDate day, BigDecimal delta, boolean deleted) {
+    }
+    
+    // Where the reload read a chunk of users: ids up to lastUserId, once sequence changes were made
+    private record ChunkRead(long lastUserId, long sequence) {
+    }
+    
+    // Boards built by a reload, with when their rows were read
+    private record Loaded(RankedScores allTime, List<ChunkRead> chunks, RankedScores month, RankedScores week,
+                          TreeMap<LocalDate, Map<Long, BigDecimal>> days, LocalDate day, long windowSequence) {
+    }
+    
+    // Every field below is guarded by this
+    private RankedScores allTime = new RankedScores();
+    private RankedScores month = new RankedScores();
+    private RankedScores week = new RankedScores();
+    
+    // Per-user sums of each day still in the month window
+    private TreeMap<LocalDate, Map<Long, BigDecimal>> days = new TreeMap<>();
+    private volatile LocalDate today = LocalDate.now();
+    private long sequence;
+    private List<Change> changesDuringLoad;  // null unless a reload is running
+    
+    public List<LeaderboardEntryDto> getLeaderboard(String window, int offset, int limit) {
+        RankedScores board = board(window);
+        List<RankedScores.Ranked> page = board.range(Math.max(0, offset), Math.max(1, Math.min(limit, MAX_LIMIT)));
+        
+        List<Long> userIds = new ArrayList<>(page.size());
+        for (RankedScores.Ranked ranked : page) {
+            userIds.add(ranked.id());
+        }
+        Map<Long, String> usernames = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            usernames.put(user.getUserId(), user.getUsername());
+        }
+        List<LeaderboardEntryDto> entries = new ArrayList<>(page.size());
+        for (RankedScores.Ranked ranked : page) {
+            entries.add(convertToDto(ranked, usernames.get(ranked.id())));
+        }
+        return entries;
+    }
+    
+    // Empty for unknown users; users not on the board (nothing gained in the window) get rank 0
+    public Optional<LeaderboardEntryDto> getRank(Long userId, String window) {
+        RankedScores board = board(window);
+        return userRepository.findById(userId)
+                .map(user -> {
+                    RankedScores.Ranked ranked = board.rankOf(userId);
+                    return convertToDto(ranked != null ? ranked : new RankedScores.Ranked(0, userId, BigDecimal.ZERO),
+                            user.getUsername());
+                });
+    }
+    
+    // Score changes of a committed transaction
+    public synchronized void record(Collection<ReputationLedgerEntry> entries) {
+        rollTo(LocalDate.now());
+        for (ReputationLedgerEntry entry : entries) {
+            apply(new Change(++sequence, entry.getUserId(), entry.getCreatedAt().toLocalDate(), entry.getDelta(), false));
+        }
+    }
+    
+    // Score changes that bypass the ledger count for the total only
+    public synchronized void scoreChanged(Long userId, BigDecimal delta) {
+        apply(new Change(++sequence, userId, null, delta, false));
+    }
+    
+    // Adding zero puts the user on the total board without touching a score it may already have
+    public synchronized void userCreated(Long userId) {
+        apply(new Change(++sequence, userId, null, BigDecimal.ZERO, false));
+    }
+    
+    public synchronized void userDeleted(Long userId) {
+        apply(new Change(++sequence, userId, null, null, true));
+    }
+    
+    // Built aside and swapped in, so the boards keep answering while this runs. Changes made in the
+    // meantime are replayed on the new boards unless the rows they were read from already had them.
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (this) {
+            if (changesDuringLoad != null) {
+                return;
+            }
+            changesDuringLoad = new ArrayList<>();
+        }
+        try {
+            swapIn(loadBoards());
+        } finally {
+            synchronized (this) {
+                changesDuringLoad = null;
+            }
+        }
+    }
+    
+    private Loaded loadBoards() {
+        RankedScores newAllTime = new RankedScores();
+        List<ChunkRead> chunks = new ArrayList<>();
+        long lastId = 0;
+        List<UserRepository.UserScoreRow> chunk;
+        do {
+            long chunkSequence = currentSequence();
+            chunk = userRepository.findScoresAfter(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            for (UserRepository.UserScoreRow row : chunk) {
+                // Votes not yet flushed to users.score are already part of the live score
+                newAllTime.set(row.getUserId(), row.getScore().add(reputationLedgerService.pendingScore(row.getUserId())));
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getUserId();
+                chunks.add(new ChunkRead(lastId, chunkSequence));
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        
+        LocalDate loadDay = LocalDate.now();
+        RankedScores newMonth = new RankedScores();
+        RankedScores newWeek = new RankedScores();
+        TreeMap<LocalDate, Map<Long, BigDecimal>> newDays = new TreeMap<>();
+        LocalDate since = loadDay.minusDays(MONTH_DAYS - 1);
+        long windowSequence = currentSequence();
+        for (ReputationLedgerRepository.UserDayDeltaRow row : reputationLedgerRepository.sumByUserAndDaySince(since.atStartOfDay())) {
+            newDays.computeIfAbsent(row.getDay(), day -> new HashMap<>()).put(row.getUserId(), row.getDelta());
+            newMonth.add(row.getUserId(), row.getDelta(), true);
+            if (row.getDay().isAfter(loadDay.minusDays(WEEK_DAYS))) {
+                newWeek.add(row.getUserId(), row.getDelta(), true);
+            }
+        }
+        return new Loaded(newAllTime, chunks, newMonth, newWeek, newDays, loadDay, windowSequence);
+    }
+    
+    private synchronized void swapIn(Loaded loaded) {
+        allTime = loaded.allTime();
+        month = loaded.month();
+        week = loaded.week();
+        days = loaded.days();
+        today = loaded.day();
+        rollTo(LocalDate.now());
+        
+        List<Change> changes = changesDuringLoad;
+        changesDuringLoad = null;
+        int replayed = 0;
+        for (Change change : changes) {
+            // Changes made before a row was read are in it already; removals are safe to repeat
+            boolean inTotal = !change.deleted() && change.sequence() <= sequenceWhenRead(loaded.chunks(), change.userId());
+            boolean inWindows = change.day() == null || change.sequence() <= loaded.windowSequence();
+            if (inTotal && inWindows) {
+                continue;
+            }
+            if (inTotal) {
+                addToWindows(change.userId(), change.day(), change.delta());
+            } else if (inWindows && !change.deleted()) {
+                allTime.add(change.userId(), change.delta(), false);
+            } else {
+                apply(change);
+            }
+            replayed++;
+        }
+        log.info("Leaderboard loaded with {} users, {} active this month and {} this week; replayed {} changes made meanwhile",
+                allTime.size(), month.size(), week.size(), replayed);
+    }
+    
+    @Scheduled(fixedDelayString = "${stackunderflow.leaderboard.reload-ms:3600000}",
+               initialDelayString = "${stackunderflow.leaderboard.reload-ms:3600000}")
+    public void reload() {
+        load();
+    }
+    
+    // Takes the expired day out of the windows right after midnight instead of on the next vote
+    @Scheduled(cron = "0 0 0 * * *")
+    public synchronized void rollDays() {
+        rollTo(LocalDate.now());
+    }
+    
+    private synchronized RankedScores board(String window) {
+        if (!LocalDate.now().equals(today)) {
+            rollTo(LocalDate.now());
+        }
+        return switch (window) {
+            case "all" -> allTime;
+            case "month" -> month;
+            case "week" -> week;
+            default -> throw new IllegalArgumentException("Unknown leaderboard window: " + window);
+        };
+    }
+    
+    // Applies a change to the live boards, and keeps it for the running reload if there is one
+    private void apply(Change change) {
+        if (change.deleted()) {
+            allTime.remove(change.userId());
+            month.remove(change.userId());
+            week.remove(change.userId());
+            for (Map<Long, BigDecimal> day : days.values()) {
+                day.remove(change.userId());
+            }
+        } else {
+            allTime.add(change.userId(), change.delta(), false);
+            if (change.day() != null) {
+                addToWindows(change.userId(), change.day(), change.delta());
+            }
+        }
+        if (changesDuringLoad != null) {
+            changesDuringLoad.add(change);
+        }
+    }
+    
+    private synchronized long currentSequence() {
+        return sequence;
+    }
+    
+    // Sequence when the chunk holding the user was read; users past the last chunk were not read at all
+    private static long sequenceWhenRead(List<ChunkRead> chunks, long userId) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).lastUserId() < userId) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low < chunks.size() ? chunks.get(low).sequence() : Long.MIN_VALUE;
+    }
+    
+    private void addToWindows(Long userId, LocalDate day, BigDecimal delta) {
+        if (!day.isAfter(today.minusDays(MONTH_DAYS))) {
+            return;
+        }
+        days.computeIfAbsent(day, d -> new HashMap<>()).merge(userId, delta, BigDecimal::add);
+        month.add(userId, delta, true);
+        if (day.isAfter(today.minusDays(WEEK_DAYS))) {
+            week.add(userId, delta, true);
+        }
+    }
+    
+    // Each day passed drops one day from the week window and one from the month window
+    private void rollTo(LocalDate newToday) {
+        for (LocalDate day = today.plusDays(1); !day.isAfter(newToday); day = day.plusDays(1)) {
+            subtract(days.get(day.minusDays(WEEK_DAYS)), week);
+            subtract(days.remove(day.minusDays(MONTH_DAYS)), month);
+        }
+        if (newToday.isAfter(today)) {
+            today = newToday;
+        }
+    }
+    
+    private static void subtract(Map<Long, BigDecimal> sums, RankedScores board) {
+        if (sums != null) {
+            for (Map.Entry<Long, BigDecimal> sum : sums.entrySet()) {
+                board.add(sum.getKey(), sum.getValue().negate(), true);
+            }
+        }
+    }
+    
+    private LeaderboardEntryDto convertToDto(RankedScores.Ranked ranked, String username) {
+        LeaderboardEntryDto dto = new LeaderboardEntryDto();
+        dto.setRank(ranked.rank());
+        dto.setUserId(ranked.id());
+        dto.setUsername(username);
+        dto.setScore(ranked.score().setScale(2, RoundingMode.HALF_UP));
+        return dto;
+    }
+} 
\ No newline at end of file
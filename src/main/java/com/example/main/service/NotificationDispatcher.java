@@ -0,0 +1,157 @@
+package com.example.main.service;
+
+import com.example.main.model.OutboxMessage;
+import com.example.main.repository.OutboxMessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Drains the notification outbox. Each poll claims a batch of due messages, sends them in parallel on
+// virtual threads (a slow provider only parks its own thread) and records the results in bulk.
+// Failed messages come back with exponential backoff until max-attempts; a dispatcher that dies
+// mid-batch leaves claims that expire after the lease, so delivery is at least once.
+@Service
+public class NotificationDispatcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+    
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    
+    @Autowired
+    private NotificationTransport notificationTransport;
+    
+    @Value("${stackunderflow.notifications.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${stackunderflow.notifications.max-attempts:8}")
+    private int maxAttempts;
+    
+    @Value("${stackunderflow.notifications.backoff-ms:1000}")
+    private long backoffMillis;
+    
+    @Value("${stackunderflow.notifications.max-backoff-ms:3600000}")
+    private long maxBackoffMillis;
+    
+    @Value("${stackunderflow.notifications.lease-seconds:60}")
+    private long leaseSeconds;
+    
+    // Sends still running after this are cancelled and retried; shorter than the lease, so the results
+    // are recorded while the claim is still ours
+    @Value("${stackunderflow.notifications.send-timeout-seconds:30}")
+    private long sendTimeoutSeconds;
+    
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Scheduled(fixedDelayString = "${stackunderflow.notifications.poll-interval-ms:1000}")
+    public void dispatch() {
+        // Keep going while batches come back full, so a backlog drains without waiting for the next poll
+        while (dispatchBatch() == batchSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+    
+    // Returns how many messages were due
+    public int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = outboxMessageRepository.findDueIds(now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) {
+            return 0;
+        }
+        String token = UUID.randomUUID().toString();
+        outboxMessageRepository.claim(dueIds, token, now, now.plusSeconds(leaseSeconds));
+        List<OutboxMessage> messages = outboxMessageRepository.findByClaimToken(token);
+        
+        List<Callable<String>> sends = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            sends.add(() -> send(message));
+        }
+        List<Future<String>> results;
+        try {
+            results = senders.invokeAll(sends, Math.min(sendTimeoutSeconds, leaseSeconds / 2), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // The claims run out and the messages are picked up again
+            Thread.currentThread().interrupt();
+            return dueIds.size();
+        }
+        
+        List<Long> sentIds = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            String error = errorOf(results.get(i));
+            if (error == null) {
+                sentIds.add(messages.get(i).getMessageId());
+            } else {
+                recordFailure(messages.get(i), token, error);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            outboxMessageRepository.markSent(sentIds, token, LocalDateTime.now());
+        }
+        return dueIds.size();
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    
+    // null when the message went out
+    private String send(OutboxMessage message) {
+        try {
+            notificationTransport.send(message);
+            return null;
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+    
+    private static String errorOf(Future<String> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        } catch (CancellationException e) {
+            return "Timed out";
+        } catch (ExecutionException e) {
+            return String.valueOf(e.getCause());
+        }
+    }
+    
+    private void recordFailure(OutboxMessage message, String token, String error) {
+        int attempts = message.getAttempts() + 1;
+        String trimmed = error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on {} message {} after {} attempts: {}",
+                    message.getChannel(), message.getMessageId(), attempts, trimmed);
+            outboxMessageRepository.markFailed(message.getMessageId(), token, "failed", LocalDateTime.now(), trimmed);
+            return;
+        }
+        // Exponential backoff with jitter, so messages that failed together do not retry together
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 30));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        outboxMessageRepository.markFailed(message.getMessageId(), token, "pending",
+                LocalDateTime.now().plusNanos(delay * 1_000_000), trimmed);
+    }
+} 
\ No newline at end of file
@@ -1,23 +1,41 @@
 package com.example.main.service;
 
+import com.example.main.model.OutboxMessage;
 import com.example.main.model.User;
+import com.example.main.repository.OutboxMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+// Notifications are only queued here, in the caller's transaction, so they are stored if and only
+// if the change that caused them commits; NotificationDispatcher sends them
 @Service
 public class NotificationService {
     
-    public void sendBanNotificationEmail(User user, String reason) {
-        // In a real application, this would use JavaMailSender or a third-party email service
-        System.out.println("Sending ban notification email to: " + user.getEmail());
-        System.out.println("Subject: Your StackUnderflow account has been banned");
-        System.out.println("Body: Dear " + user.getUsername() + ", your account has been banned for the following reason: " + reason);
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueBanNotificationEmail(User user, String reason) {
+        queue("email", user.getEmail(), "Your StackUnderflow account has been banned",
+                "Dear " + user.getUsername() + ", your account has been banned for the following reason: " + reason);
     }
     
-    public void sendBanNotificationSMS(User user, String reason) {
-        // In a real application, this would use a third-party SMS service like Twilio
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueBanNotificationSMS(User user, String reason) {
         if (user.getPhoneNumber() != null && !user.getPhoneNumber().isEmpty()) {
-            System.out.println("Sending ban notification SMS to: " + user.getPhoneNumber());
-            System.out.println("Message: Your StackUnderflow account has been banned for: " + reason);
+            queue("sms", user.getPhoneNumber(), null,
+                    "Your StackUnderflow account has been banned for: " + reason);
         }
     }
+    
+    private void queue(String channel, String recipient, String subject, String body) {
+        OutboxMessage message = new OutboxMessage();
+        message.setChannel(channel);
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        outboxMessageRepository.save(message);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.main.service;
+
+import com.example.main.model.OutboxMessage;
+
+// Delivers one outbox message to its provider; an exception means the message is retried later
+public interface NotificationTransport {
+    
+    void send(OutboxMessage message) throws Exception;
+} 
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.example.main.service;
+
+import com.example.main.dto.AnswerDto;
+import com.example.main.dto.QuestionDto;
+import com.example.main.dto.TagDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.service.QuestionPageService.SerializedPage;
+import com.example.main.service.QuestionVersionService.VersionStamp;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Read-through caches for question pages: the QuestionDto by question id and its answer list.
+// Caffeine's W-TinyLFU admission keeps the hot questions when the weight bound is reached.
+// Each entry remembers the version stamp it was loaded under and is reloaded when asked for a newer
+// one, so a body is never older than the stamp (and ETag) it is served with, even when a load races
+// with the invalidation that follows a commit. Cached DTOs are shared and must not be modified by callers.
+// Votes change only counts, so they do not evict: refreshVoteCounts patches the counts into copies
+// and moves the entries to the vote's version, and a hot question keeps its cached body.
+@Service
+public class QuestionCacheService {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Weights approximate retained bytes
+    @Value("${stackunderflow.cache.questions.max-weight:67108864}")
+    private long questionsMaxWeight;
+    
+    @Value("${stackunderflow.cache.answers.max-weight:134217728}")
+    private long answersMaxWeight;
+    
+    @Value("${stackunderflow.cache.pages.max-weight:134217728}")
+    private long pagesMaxWeight;
+    
+    @Value("${stackunderflow.cache.versions.max-size:200000}")
+    private long versionsMaxSize;
+    
+    // A cached value and the version stamp it was loaded under; its content is at least that new
+    private record Versioned<T>(long version, long epochMillis, T value) {
+        
+        boolean covers(VersionStamp stamp) {
+            return version >= stamp.version() && epochMillis >= stamp.epochMillis();
+        }
+        
+        Versioned<T> advance(long newVersion, T newValue) {
+            return new Versioned<>(newVersion, epochMillis, newValue);
+        }
+    }
+    
+    private Cache<Long, Versioned<QuestionDto>> questions;
+    private Cache<Long, Versioned<List<AnswerDto>>> answersByQuestion;
+    
+    // Vote counts of a question or answer as of one version
+    public record VoteCounts(long id, int upvotes, int downvotes) {
+    }
+    
+    // Accepted answer first, then by net score, oldest first on ties, as AnswerRepository sorts them
+    private static final Comparator<AnswerDto> ANSWER_ORDER =
+            Comparator.comparing((AnswerDto answer) -> !answer.isAccepted())
+                    .thenComparing(answer -> answer.getUpvotes() - answer.getDownvotes(), Comparator.reverseOrder())
+                    .thenComparing(AnswerDto::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(AnswerDto::getAnswerId);
+    
+    // Serialized question pages, built from the two caches above under the same stamp
+    private Cache<Long, Versioned<SerializedPage>> pages;
+    
+    // Version stamps for conditional GETs
+    private Cache<Long, VersionStamp> versions;
+    
+    // Moved by invalidateAll, which changes cached bodies without bumping any version
+    private volatile long epochMillis;
+    
+    @PostConstruct
+    public void init() {
+        epochMillis = System.currentTimeMillis();
+        questions = Caffeine.newBuilder()
+                .maximumWeight(questionsMaxWeight)
+                .weigher((Long id, Versioned<QuestionDto> question) -> weigh(question.value()))
+                .recordStats()
+                .build();
+        answersByQuestion = Caffeine.newBuilder()
+                .maximumWeight(answersMaxWeight)
+                .weigher((Long id, Versioned<List<AnswerDto>> answers) -> weigh(answers.value()))
+                .recordStats()
+                .build();
+        pages = Caffeine.newBuilder()
+                .maximumWeight(pagesMaxWeight)
+                .weigher((Long id, Versioned<SerializedPage> page) -> 64 + page.value().json().length + page.value().gzip().length)
+                .recordStats()
+                .build();
+        versions = Caffeine.newBuilder()
+                .maximumSize(versionsMaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, questions, "questions");
+        CaffeineCacheMetrics.monitor(meterRegistry, answersByQuestion, "answers");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "questionPages");
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "questionVersions");
+    }
+    
+    // The loader must read the database after the stamp was taken. A null from it (no such question)
+    // is returned but not cached.
+    public QuestionDto getQuestion(Long questionId, VersionStamp version, Function<Long, QuestionDto> loader) {
+        return getVersioned(questions, questionId, version, loader);
+    }
+    
+    public List<AnswerDto> getAnswers(Long questionId, VersionStamp version, Function<Long, List<AnswerDto>> loader) {
+        return getVersioned(answersByQuestion, questionId, version, loader);
+    }
+    
+    public SerializedPage getPage(Long questionId, VersionStamp version, Function<Long, SerializedPage> loader) {
+        return getVersioned(pages, questionId, version, loader);
+    }
+    
+    public VersionStamp getVersion(Long questionId, Function<Long, VersionStamp> loader) {
+        return versions.get(questionId, loader);
+    }
+    
+    public long epochMillis() {
+        return epochMillis;
+    }
+    
+    // For changes that touch many questions at once, such as renaming a tag or a user
+    public void invalidateAll() {
+        questions.invalidateAll();
+        answersByQuestion.invalidateAll();
+        pages.invalidateAll();
+        epochMillis = Math.max(epochMillis + 1, System.currentTimeMillis());
+        versions.invalidateAll();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        Long questionId = event.questionId();
+        switch (event.change()) {
+            // The accepted flag on answers follows the question
+            case CONTENT, DELETED -> {
+                questions.invalidate(questionId);
+                answersByQuestion.invalidate(questionId);
+            }
+            case ANSWERS -> answersByQuestion.invalidate(questionId);
+            // Handled by refreshVoteCounts
+            case VOTES, ANSWER_VOTES -> {
+            }
+        }
+        // Only frees memory: entries older than the next stamp would be reloaded anyway
+        pages.invalidate(questionId);
+        versions.invalidate(questionId);
+    }
+    
+    // Called after a vote commits with the version it bumped the question to and the counts read
+    // under that version; null counts did not change. Only entries cached under the version just
+    // before move forward, since anything else may have changed in between; the rest reload.
+    public void refreshVoteCounts(Long questionId, long version, VoteCounts question, List<VoteCounts> answers) {
+        questions.asMap().computeIfPresent(questionId, (id, current) -> current.version() != version - 1 ? current
+                : current.advance(version, question == null ? current.value() : withVotes(current.value(), question)));
+        answersByQuestion.asMap().computeIfPresent(questionId, (id, current) -> current.version() != version - 1 ? current
+                : current.advance(version, answers == null ? current.value() : withVotes(current.value(), answers)));
+        pages.invalidate(questionId);
+        versions.invalidate(questionId);
+    }
+    
+    // Reuses the cached value if it is at least as new as the stamp; loads for one key run one at a time
+    private static <T> T getVersioned(Cache<Long, Versioned<T>> cache, Long questionId, VersionStamp version,
+                                      Function<Long, T> loader) {
+        Versioned<T> cached = cache.getIfPresent(questionId);
+        if (cached != null && cached.covers(version)) {
+            return cached.value();
+        }
+        Versioned<T> loaded = cache.asMap().compute(questionId, (id, current) -> {
+            if (current != null && current.covers(version)) {
+                return current;
+            }
+            T value = loader.apply(id);
+            return value == null ? null : new Versioned<>(version.version(), version.epochMillis(), value);
+        });
+        return loaded == null ? null : loaded.value();
+    }
+    
+    private static QuestionDto withVotes(QuestionDto question, VoteCounts counts) {
+        QuestionDto copy = new QuestionDto();
+        copy.setQuestionId(question.getQuestionId());
+        copy.setAuthorId(question.getAuthorId());
+        copy.setAuthorUsername(question.getAuthorUsername());
+        copy.setTitle(question.getTitle());
+        copy.setText(question.getText());
+        copy.setImage(question.getImage());
+        copy.setStatus(question.getStatus());
+        copy.setTags(question.getTags());
+        copy.setCreatedAt(question.getCreatedAt());
+        copy.setAcceptedAnswerId(question.getAcceptedAnswerId());
+        copy.setUpvotes(counts.upvotes());
+        copy.setDownvotes(counts.downvotes());
+        return copy;
+    }
+    
+    // Net scores order the answers, so the copies are sorted again
+    private static List<AnswerDto> withVotes(List<AnswerDto> answers, List<VoteCounts> counts) {
+        Map<Long, VoteCounts> byAnswerId = new HashMap<>();
+        for (VoteCounts answerCounts : counts) {
+            byAnswerId.put(answerCounts.id(), answerCounts);
+        }
+        List<AnswerDto> copies = new ArrayList<>(answers.size());
+        for (AnswerDto answer : answers) {
+            VoteCounts answerCounts = byAnswerId.get(answer.getAnswerId());
+            if (answerCounts == null) {
+                copies.add(answer);
+                continue;
+            }
+            AnswerDto copy = new AnswerDto();
+            copy.setAnswerId(answer.getAnswerId());
+            copy.setQuestionId(answer.getQuestionId());
+            copy.setAuthorId(answer.getAuthorId());
+            copy.setAuthorUsername(answer.getAuthorUsername());
+            copy.setText(answer.getText());
+            copy.setImage(answer.getImage());
+            copy.setCreatedAt(answer.getCreatedAt());
+            copy.setAccepted(answer.isAccepted());
+            copy.setUpvotes(answerCounts.upvotes());
+            copy.setDownvotes(answerCounts.downvotes());
+            copies.add(copy);
+        }
+        copies.sort(ANSWER_ORDER);
+        return Collections.unmodifiableList(copies);
+    }
+    
+    private static int weigh(QuestionDto question) {
+        int weight = 256 + length(question.getTitle()) + length(question.getText()) + length(question.getImage());
+        if (question.getTags() != null) {
+            for (TagDto tag : question.getTags()) {
+                weight += 48 + length(tag.getName());
+            }
+        }
+        return weight;
+    }
+    
+    private static int weigh(List<AnswerDto> answers) {
+        int weight = 64;
+        for (AnswerDto answer : answers) {
+            weight += 192 + length(answer.getText()) + length(answer.getImage());
+        }
+        return weight;
+    }
+    
+    private static int length(String value) {
+        return value == null ? 0 : value.length() * 2;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.main.service;
+
+import com.example.main.dto.AnswerDto;
+import com.example.main.dto.QuestionDto;
+import com.example.main.dto.QuestionPageDto;
+import com.example.main.service.QuestionVersionService.VersionStamp;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+// Question page (question plus answers), optionally served as JSON bytes serialized once per version
+@Service
+public class QuestionPageService {
+    
+    @Autowired
+    private QuestionService questionService;
+    
+    @Autowired
+    private AnswerService answerService;
+    
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    // The application's own mapper, so the bytes match what the other endpoints produce
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // UTF-8 JSON and its gzip encoding
+    public record SerializedPage(byte[] json, byte[] gzip) {
+    }
+    
+    // Both parts are at least as new as the given stamp, so its ETag never claims a newer page than this
+    public Optional<QuestionPageDto> getQuestionPage(Long questionId, VersionStamp version) {
+        Optional<QuestionDto> question = questionService.getQuestionById(questionId, version);
+        if (question.isEmpty()) {
+            return Optional.empty();
+        }
+        List<AnswerDto> answers = answerService.getAnswersByQuestion(questionId, version);
+        return Optional.of(new QuestionPageDto(question.get(), answers));
+    }
+    
+    // Cached bytes are reused only for the stamp they were built under or an older one
+    public Optional<SerializedPage> getSerializedQuestionPage(Long questionId, VersionStamp version) {
+        return Optional.ofNullable(questionCacheService.getPage(questionId, version, id ->
+                getQuestionPage(id, version).map(this::serialize).orElse(null)));
+    }
+    
+    private SerializedPage serialize(QuestionPageDto page) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new SerializedPage(json, compressed.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize question page", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.main.service;
+
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.AnswerRepository.AnswerTextRow;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.QuestionRepository.QuestionTagRow;
+import com.example.main.repository.QuestionRepository.QuestionTextRow;
+import com.example.main.search.QuestionDocument;
+import com.example.main.search.SearchHit;
+import com.example.main.search.SegmentedIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The search index lives under index-dir in a versioned subdirectory named by the CURRENT file,
+// so a rebuild can be written next to the live index and switched over atomically.
+@Service
+public class QuestionSearchService {
+    
+    private static final Logger log = LoggerFactory.getLogger(QuestionSearchService.class);
+    
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    private static final int RECONCILE_CHUNK_SIZE = 10000;
+    private static final String CURRENT_FILE = "CURRENT";
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private AnswerRepository answerRepository;
+    
+    @Value("${stackunderflow.search.index-dir:data/search-index}")
+    private String indexDir;
+    
+    // Segments merged at a time, and the size no merge may produce
+    @Value("${stackunderflow.search.merge-factor:4}")
+    private int mergeFactor;
+    
+    @Value("${stackunderflow.search.max-segment-mb:1024}")
+    private long maxSegmentMb;
+    
+    // How far a change can lag between its commit and reaching the index; the checkpoint stays this far back
+    @Value("${stackunderflow.search.checkpoint-margin-seconds:60}")
+    private long checkpointMarginSeconds;
+    
+    // Null until the index is opened or first built; searches return nothing until then
+    private volatile SegmentedIndex index;
+    
+    // Questions changed while a rebuild is running; re-applied once the new index is swapped in
+    private Set<Long> changedDuringRebuild;
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    // Serializes flush/merge with the swap at the end of a rebuild
+    private final Object maintenanceLock = new Object();
+    
+    public List<SearchHit> search(String query, int maxHits) {
+        SegmentedIndex current = index;
+        return current == null ? List.of() : current.search(query, maxHits);
+    }
+    
+    // Opens the existing segments, which only maps the files, then catches up in the background with
+    // whatever changed after the last checkpoint; the whole index is rebuilt only when none exists
+    @EventListener(ApplicationReadyEvent.class)
+    public void open() {
+        try {
+            Path root = Paths.get(indexDir);
+            Path currentFile = root.resolve(CURRENT_FILE);
+            if (Files.exists(currentFile)) {
+                Path directory = root.resolve(Files.readString(currentFile, StandardCharsets.UTF_8).trim());
+                if (Files.isDirectory(directory)) {
+                    index = SegmentedIndex.open(directory);
+                    log.info("Search index opened with {} questions from {}", index.size(), directory);
+                    if (rebuilding.compareAndSet(false, true)) {
+                        Thread thread = new Thread(this::runReconcile, "search-index-reconcile");
+                        thread.setDaemon(true);
+                        thread.start();
+                    }
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to open search index, rebuilding", e);
+        }
+        if (rebuilding.compareAndSet(false, true)) {
+            runRebuild();
+        }
+    }
+    
+    // Rebuilds in the background; returns false when a rebuild is already running
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runRebuild, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+    
+    // Rebuilds on the calling thread, for bulk loads that bypass the services
+    public boolean rebuildNow() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        runRebuild();
+        return true;
+    }
+    
+    private void runRebuild() {
+        try {
+            rebuild();
+        } catch (IOException | RuntimeException e) {
+            log.error("Search index rebuild failed", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    private void runReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Search index reconcile failed", e);
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    // Brings an opened index up to date with the database: changes lost with the unflushed memtable
+    // are found through last_modified, which every change to a question bumps, and questions added
+    // or deleted behind the index's back by comparing the id sets
+    private void reconcile() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        SegmentedIndex current = index;
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(current.checkpoint()), ZoneId.systemDefault());
+        int reindexed = 0;
+        long lastId = 0;
+        List<Long> chunk;
+        do {
+            chunk = questionRepository.findIdsModifiedSince(since, lastId, PageRequest.of(0, RECONCILE_CHUNK_SIZE));
+            for (Long questionId : chunk) {
+                reindex(questionId);
+            }
+            reindexed += chunk.size();
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == RECONCILE_CHUNK_SIZE);
+        
+        // Merge-walk the two ascending id lists
+        long[] indexed = current.documentIds();
+        int position = 0;
+        int added = 0;
+        int removed = 0;
+        lastId = 0;
+        do {
+            chunk = questionRepository.findIdsAfter(lastId, PageRequest.of(0, RECONCILE_CHUNK_SIZE));
+            for (Long questionId : chunk) {
+                while (position < indexed.length && indexed[position] < questionId) {
+                    current.remove(indexed[position++]);
+                    removed++;
+                }
+                if (position < indexed.length && indexed[position] == questionId) {
+                    position++;
+                } else {
+                    reindex(questionId);
+                    added++;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == RECONCILE_CHUNK_SIZE);
+        while (position < indexed.length) {
+            current.remove(indexed[position++]);
+            removed++;
+        }
+        
+        // The walk may have raced with live changes; apply those again now that it is done
+        Set<Long> changed;
+        synchronized (this) {
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        changed.forEach(this::reindex);
+        log.info("Search index reconciled: {} changed, {} added, {} removed", reindexed, added, removed);
+    }
+    
+    // Streams all questions in id order into a fresh index directory, then switches CURRENT to it
+    private void rebuild() throws IOException {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        
+        Path root = Paths.get(indexDir);
+        String name = "index-" + System.currentTimeMillis();
+        long startedAt = System.currentTimeMillis();
+        SegmentedIndex rebuilt;
+        try {
+            rebuilt = SegmentedIndex.open(root.resolve(name));
+            long lastId = 0;
+            List<QuestionTextRow> chunk;
+            do {
+                chunk = questionRepository.findTextsAfter(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+                for (QuestionDocument document : loadDocuments(chunk)) {
+                    rebuilt.index(document);
+                }
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.get(chunk.size() - 1).getQuestionId();
+                }
+                // Bounded memory: every chunk becomes a segment, merged as they pile up
+                rebuilt.flush(0);
+                rebuilt.merge(mergeFactor, maxSegmentMb << 20);
+            } while (chunk.size() == REBUILD_CHUNK_SIZE);
+            // Changes made during the rebuild are re-applied below, so it is complete as of its start
+            rebuilt.flush(startedAt - checkpointMarginSeconds * 1000);
+            Files.writeString(root.resolve(CURRENT_FILE + ".tmp"), name, StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            deleteDirectory(root.resolve(name));
+            throw e;
+        }
+        
+        SegmentedIndex previous;
+        Set<Long> changed;
+        synchronized (maintenanceLock) {
+            Files.move(root.resolve(CURRENT_FILE + ".tmp"), root.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                previous = index;
+                index = rebuilt;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            }
+        }
+        changed.forEach(this::reindex);
+        if (previous != null) {
+            deleteDirectory(previous.getDirectory());
+        }
+        log.info("Search index rebuilt with {} questions", rebuilt.size());
+    }
+    
+    // Writes recent changes to a segment and runs any merges that are due. Changes made since the last
+    // flush die with the process, but are older than the next checkpoint and so replayed by reconcile.
+    @Scheduled(fixedDelayString = "${stackunderflow.search.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (maintenanceLock) {
+            SegmentedIndex current = index;
+            if (current == null) {
+                return;
+            }
+            try {
+                // Until reconcile finishes the index may still miss older changes
+                if (rebuilding.get()) {
+                    current.flush(current.checkpoint());
+                } else {
+                    current.flush(System.currentTimeMillis() - checkpointMarginSeconds * 1000);
+                }
+                current.merge(mergeFactor, maxSegmentMb << 20);
+            } catch (IOException e) {
+                log.error("Search index flush failed", e);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+    
+    // Runs after the publishing transaction commits, so the index never sees rolled-back changes.
+    // Votes do not change any indexed text and are filtered out before anything is queued.
+    @TransactionalEventListener(fallbackExecution = true,
+            condition = "#event.change() != T(com.example.main.event.QuestionChangedEvent.Change).VOTES"
+                    + " && #event.change() != T(com.example.main.event.QuestionChangedEvent.Change).ANSWER_VOTES")
+    @Async("questionEventExecutor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        synchronized (this) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event.questionId());
+            }
+        }
+        if (index == null) {
+            return;
+        }
+        if (event.change() == QuestionChangedEvent.Change.DELETED) {
+            index.remove(event.questionId());
+        } else {
+            reindex(event.questionId());
+        }
+    }
+    
+    private void reindex(Long questionId) {
+        List<QuestionDocument> documents = loadDocuments(questionRepository.findTextsByQuestionIds(List.of(questionId)));
+        if (documents.isEmpty()) {
+            index.remove(questionId);
+        } else {
+            index.index(documents.get(0));
+        }
+    }
+    
+    private void deleteDirectory(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete old search index {}", directory, e);
+        }
+    }
+    
+    // Tags and answer texts for the whole batch are loaded with one query each
+    private List<QuestionDocument> loadDocuments(List<QuestionTextRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        
+        List<Long> questionIds = rows.stream()
+                .map(QuestionTextRow::getQuestionId)
+                .collect(Collectors.toList());
+        Map<Long, List<String>> tagsByQuestion = new HashMap<>();
+        for (QuestionTagRow row : questionRepository.findTagsByQuestionIds(questionIds)) {
+            tagsByQuestion.computeIfAbsent(row.getQuestionId(), id -> new ArrayList<>()).add(row.getName());
+        }
+        Map<Long, List<String>> answersByQuestion = new HashMap<>();
+        for (AnswerTextRow row : answerRepository.findTextsByQuestionIds(questionIds)) {
+            answersByQuestion.computeIfAbsent(row.getQuestionId(), id -> new ArrayList<>()).add(row.getText());
+        }
+        
+        return rows.stream()
+                .map(row -> new QuestionDocument(
+                        row.getQuestionId(),
+                        row.getTitle(),
+                        row.getText(),
+                        tagsByQuestion.getOrDefault(row.getQuestionId(), List.of()),
+                        answersByQuestion.getOrDefault(row.getQuestionId(), List.of())))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,19 +1,32 @@
 package com.example.main.service;
 
+import com.example.main.dto.PageCursor;
+import com.example.main.dto.PageDto;
 import com.example.main.dto.QuestionDto;
+import com.example.main.dto.QuestionSummaryDto;
 import com.example.main.dto.TagDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
 import com.example.main.model.Question;
-import com.example.main.model.Tag;
 import com.example.main.model.User;
-import com.example.main.model.Vote;
 import com.example.main.repository.QuestionRepository;
-import com.example.main.repository.VoteRepository;
+import com.example.main.repository.QuestionRepository.QuestionTagRow;
+import com.example.main.search.SearchHit;
+import com.example.main.service.QuestionVersionService.VersionStamp;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -30,91 +43,155 @@ public class QuestionService {
     private TagService tagService;
     
     @Autowired
-    private VoteRepository voteRepository;
+    private QuestionSearchService questionSearchService;
     
-    public List<QuestionDto> getAllQuestions() {
-        return questionRepository.findAll().stream()
-                .sorted((q1, q2) -> q2.getCreatedAt().compareTo(q1.getCreatedAt()))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Autowired
+    private TagFilterService tagFilterService;
+    
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    @Autowired
+    private QuestionVersionService questionVersionService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_OFFSET = 1000;
+    public static final int MAX_FILTER_TAGS = 10;
+    
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> getAllQuestions(PageCursor after, int limit) {
+        int size = pageSize(limit);
+        return toPage(questionRepository.findPage(
+                after.getCreatedAt(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
     
+    // Takes the current version stamp; a question without one does not exist
     public Optional<QuestionDto> getQuestionById(Long id) {
-        return questionRepository.findById(id)
-                .map(this::convertToDto);
+        return questionVersionService.getVersion(id).flatMap(version -> getQuestionById(id, version));
     }
     
-    public List<QuestionDto> getQuestionsByAuthor(Long authorId) {
-        User author = userService.findUserEntityById(authorId);
-        if (author == null) {
-            return List.of();
-        }
-        return questionRepository.findByAuthor(author).stream()
-                .sorted((q1, q2) -> q2.getCreatedAt().compareTo(q1.getCreatedAt()))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    // At least as new as the given stamp, so the stamp's ETag never claims a newer body than this.
+    // Not transactional, so a cache hit never takes a connection; the entity graph loads
+    // everything convertToDto reads in the repository call itself
+    public Optional<QuestionDto> getQuestionById(Long id, VersionStamp version) {
+        return Optional.ofNullable(questionCacheService.getQuestion(id, version, questionId ->
+                questionRepository.findDetailedByQuestionId(questionId)
+                        .map(this::convertToDto)
+                        .orElse(null)));
     }
     
-    public List<QuestionDto> getQuestionsByTag(String tagName) {
-        Optional<Tag> tag = tagService.findTagEntityByName(tagName);
-        if (tag.isEmpty()) {
-            return List.of();
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> getQuestionsByAuthor(Long authorId, PageCursor after, int limit) {
+        int size = pageSize(limit);
+        return toPage(questionRepository.findPageByAuthor(
+                authorId, after.getCreatedAt(), after.getId(), PageRequest.of(0, size + 1)), size);
+    }
+    
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> getQuestionsByTag(String tagName, PageCursor after, int limit) {
+        Optional<Long> tagId = tagService.findTagIdByName(tagName);
+        if (tagId.isEmpty()) {
+            return new PageDto<>(List.of(), null);
         }
-        return tag.get().getQuestions().stream()
-                .sorted((q1, q2) -> q2.getCreatedAt().compareTo(q1.getCreatedAt()))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        int size = pageSize(limit);
+        return toPage(questionRepository.findPageByTag(
+                tagId.get(), after.getCreatedAt(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
     
-    public List<QuestionDto> getQuestionsByStatus(String status) {
-        return questionRepository.findByStatus(status).stream()
-                .sorted((q1, q2) -> q2.getCreatedAt().compareTo(q1.getCreatedAt()))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> getQuestionsByStatus(String status, PageCursor after, int limit) {
+        int size = pageSize(limit);
+        return toPage(questionRepository.findPageByStatus(
+                status, after.getCreatedAt(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
     
-    public List<QuestionDto> searchQuestions(String keyword) {
-        return questionRepository.findByTitleContainingOrTextContaining(keyword, keyword).stream()
-                .sorted((q1, q2) -> q2.getCreatedAt().compareTo(q1.getCreatedAt()))
-                .map(this::convertToDto)
+    // Search results are ranked by relevance, so their cursor is simply the offset of the next page
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> searchQuestions(String keyword, String after, int limit) {
+        int size = pageSize(limit);
+        int offset = after == null || after.isBlank() ? 0 : Integer.parseInt(after.trim());
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+        }
+        
+        List<SearchHit> hits = questionSearchService.search(keyword, offset + size + 1);
+        if (hits.size() <= offset) {
+            return new PageDto<>(List.of(), null);
+        }
+        boolean hasMore = hits.size() > offset + size;
+        List<Long> questionIds = hits.subList(offset, Math.min(hits.size(), offset + size)).stream()
+                .map(SearchHit::questionId)
                 .collect(Collectors.toList());
+        return new PageDto<>(loadSummaries(questionIds), hasMore ? String.valueOf(offset + size) : null);
     }
     
-    public QuestionDto createQuestion(Long authorId, String title, String text, String image, String tagString) {
-        User author = userService.findUserEntityById(authorId);
-        if (author == null) {
-            return null;
+    // Tag filters are evaluated on in-memory bitmaps; pages run newest id first and the cursor is the last id
+    @Transactional(readOnly = true)
+    public PageDto<QuestionSummaryDto> getQuestionsByTags(String all, String any, String none, String after, int limit) {
+        List<String> allNames = splitTagNames(all);
+        List<String> anyNames = splitTagNames(any);
+        List<String> noneNames = splitTagNames(none);
+        if (allNames.size() + anyNames.size() + noneNames.size() > MAX_FILTER_TAGS) {
+            throw new IllegalArgumentException("At most " + MAX_FILTER_TAGS + " tags per filter");
         }
+        long before = after == null || after.isBlank() ? Long.MAX_VALUE : Long.parseLong(after.trim());
         
-        Question question = new Question();
-        question.setAuthor(author);
-        question.setTitle(title);
-        question.setText(text);
-        question.setImage(image);
-        question.setStatus("received");
+        List<Long> allTagIds = tagService.findTagIds(allNames);
+        if (allTagIds.size() < allNames.size()) {
+            // A required tag that does not exist matches nothing
+            return new PageDto<>(List.of(), null);
+        }
+        List<Long> anyTagIds = tagService.findTagIds(anyNames);
+        if (!anyNames.isEmpty() && anyTagIds.isEmpty()) {
+            return new PageDto<>(List.of(), null);
+        }
         
-        // Process tags
-        if (tagString != null && !tagString.trim().isEmpty()) {
-            List<String> tagNames = Arrays.asList(tagString.split(","));
-            List<Tag> tags = new ArrayList<>();
+        int size = pageSize(limit);
+        List<Long> questionIds = tagFilterService.findQuestionIds(
+                allTagIds, anyTagIds, tagService.findTagIds(noneNames), before, size + 1);
+        boolean hasMore = questionIds.size() > size;
+        List<Long> pageIds = hasMore ? questionIds.subList(0, size) : questionIds;
+        return new PageDto<>(loadSummaries(pageIds), hasMore ? String.valueOf(pageIds.get(pageIds.size() - 1)) : null);
+    }
+    
+    // Missing tags are created before the transaction opens, so it never holds one pooled connection
+    // while waiting for another
+    public QuestionDto createQuestion(Long authorId, String title, String text, String image, String tagString) {
+        List<Long> tagIds = tagString != null && !tagString.trim().isEmpty()
+                ? tagService.findOrCreateTagIds(splitTagNames(tagString))
+                : null;
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            User author = userService.findUserEntityById(authorId);
+            if (author == null) {
+                return null;
+            }
             
-            for (String tagName : tagNames) {
-                String trimmedTagName = tagName.trim();
-                if (!trimmedTagName.isEmpty()) {
-                    Tag tag = tagService.findOrCreateTag(trimmedTagName);
-                    tags.add(tag);
-                }
+            Question question = new Question();
+            question.setAuthor(author);
+            question.setTitle(title);
+            question.setText(text);
+            question.setImage(image);
+            question.setStatus("received");
+            if (tagIds != null) {
+                question.setTags(tagService.getReferences(tagIds));
             }
             
-            question.setTags(tags);
-        }
-        
-        Question savedQuestion = questionRepository.save(question);
-        return convertToDto(savedQuestion);
+            Question savedQuestion = questionRepository.save(question);
+            eventPublisher.publishEvent(new QuestionChangedEvent(savedQuestion.getQuestionId(), Change.CONTENT));
+            return convertToDto(savedQuestion);
+        });
     }
     
+    // Like createQuestion, creates missing tags first; without tags it also runs inside a caller's transaction
     public Optional<QuestionDto> updateQuestion(Long id, String title, String text, String image, String tagString, String status) {
-        return questionRepository.findById(id)
+        List<Long> tagIds = tagString != null ? tagService.findOrCreateTagIds(splitTagNames(tagString)) : null;
+        return new TransactionTemplate(transactionManager).execute(transaction -> questionRepository.findById(id)
                 .map(question -> {
                     if (title != null) {
                         question.setTitle(title);
@@ -129,43 +206,103 @@ public class QuestionService {
                         question.setStatus(status);
                     }
                     
-                    // Process tags
-                    if (tagString != null) {
-                        List<String> tagNames = Arrays.asList(tagString.split(","));
-                        List<Tag> tags = new ArrayList<>();
-                        
-                        for (String tagName : tagNames) {
-                            String trimmedTagName = tagName.trim();
-                            if (!trimmedTagName.isEmpty()) {
-                                Tag tag = tagService.findOrCreateTag(trimmedTagName);
-                                tags.add(tag);
-                            }
-                        }
-                        
-                        question.setTags(tags);
+                    if (tagIds != null) {
+                        question.setTags(tagService.getReferences(tagIds));
                     }
                     
-                    return convertToDto(questionRepository.save(question));
-                });
+                    Question savedQuestion = questionRepository.save(question);
+                    eventPublisher.publishEvent(new QuestionChangedEvent(savedQuestion.getQuestionId(), Change.CONTENT));
+                    return convertToDto(savedQuestion);
+                }));
     }
     
+    @Transactional
     public Optional<QuestionDto> acceptAnswer(Long questionId, Long answerId) {
         return questionRepository.findById(questionId)
                 .map(question -> {
                     question.setAcceptedAnswerId(answerId);
                     question.setStatus("solved");
-                    return convertToDto(questionRepository.save(question));
+                    Question savedQuestion = questionRepository.save(question);
+                    eventPublisher.publishEvent(new QuestionChangedEvent(savedQuestion.getQuestionId(), Change.CONTENT));
+                    return convertToDto(savedQuestion);
                 });
     }
     
+    @Transactional
     public boolean deleteQuestion(Long id) {
         if (questionRepository.existsById(id)) {
             questionRepository.deleteById(id);
+            eventPublisher.publishEvent(new QuestionChangedEvent(id, Change.DELETED));
             return true;
         }
         return false;
     }
     
+    // Keeps the order of questionIds; ids deleted since they were indexed simply drop out
+    private List<QuestionSummaryDto> loadSummaries(List<Long> questionIds) {
+        if (questionIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, QuestionSummaryDto> summaries = questionRepository.findSummariesByIds(questionIds).stream()
+                .collect(Collectors.toMap(QuestionSummaryDto::getQuestionId, summary -> summary));
+        List<QuestionSummaryDto> page = questionIds.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        attachTags(page);
+        return page;
+    }
+    
+    private List<String> splitTagNames(String tagString) {
+        if (tagString == null) {
+            return List.of();
+        }
+        return Arrays.stream(tagString.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+    
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
+    // Queries fetch one extra row so we know whether another page exists
+    private PageDto<QuestionSummaryDto> toPage(List<QuestionSummaryDto> summaries, int size) {
+        boolean hasMore = summaries.size() > size;
+        List<QuestionSummaryDto> page = hasMore ? summaries.subList(0, size) : summaries;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            QuestionSummaryDto last = page.get(page.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getQuestionId()).encode();
+        }
+        
+        attachTags(page);
+        return new PageDto<>(page, nextCursor);
+    }
+    
+    // Tags for the whole batch are loaded in one query
+    private void attachTags(List<QuestionSummaryDto> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        
+        List<Long> questionIds = summaries.stream()
+                .map(QuestionSummaryDto::getQuestionId)
+                .collect(Collectors.toList());
+        Map<Long, List<TagDto>> tagsByQuestion = new HashMap<>();
+        for (QuestionTagRow row : questionRepository.findTagsByQuestionIds(questionIds)) {
+            tagsByQuestion.computeIfAbsent(row.getQuestionId(), id -> new ArrayList<>())
+                    .add(convertTagToDto(row.getTagId(), row.getName()));
+        }
+        
+        for (QuestionSummaryDto summary : summaries) {
+            summary.setTags(tagsByQuestion.getOrDefault(summary.getQuestionId(), List.of()));
+        }
+    }
+    
     private QuestionDto convertToDto(Question question) {
         QuestionDto dto = new QuestionDto();
         dto.setQuestionId(question.getQuestionId());
@@ -177,26 +314,22 @@ public class QuestionService {
         dto.setStatus(question.getStatus());
         dto.setCreatedAt(question.getCreatedAt());
         dto.setAcceptedAnswerId(question.getAcceptedAnswerId());
-        
-        // Convert tags to DTOs
-        List<TagDto> tagDtos = question.getTags().stream()
-                .map(tag -> {
-                    TagDto tagDto = new TagDto();
-                    tagDto.setTagId(tag.getTagId());
-                    tagDto.setName(tag.getName());
-                    return tagDto;
-                })
-                .collect(Collectors.toList());
-        dto.setTags(tagDtos);
-        
-        // Count votes
-        List<Vote> votes = voteRepository.findByQuestion(question);
-        dto.setUpvotes((int) votes.stream().filter(v -> "upvote".equals(v.getVoteType())).count());
-        dto.setDownvotes((int) votes.stream().filter(v -> "downvote".equals(v.getVoteType())).count());
+        dto.setTags(question.getTags().stream()
+                .map(tag -> convertTagToDto(tag.getTagId(), tag.getName()))
+                .collect(Collectors.toList()));
+        dto.setUpvotes(question.getUpvoteCount());
+        dto.setDownvotes(question.getDownvoteCount());
         
         return dto;
     }
     
+    private TagDto convertTagToDto(Long tagId, String name) {
+        TagDto tagDto = new TagDto();
+        tagDto.setTagId(tagId);
+        tagDto.setName(name);
+        return tagDto;
+    }
+    
     public Question findQuestionEntityById(Long id) {
         return questionRepository.findById(id).orElse(null);
     }
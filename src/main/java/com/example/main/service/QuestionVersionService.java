@@ -0,0 +1,105 @@
+package com.example.main.service;
+
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.QuestionRepository.QuestionVoteCountRow;
+import com.example.main.service.QuestionCacheService.VoteCounts;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+// Per-question content versions for conditional GETs. Every QuestionChangedEvent (edits, answers,
+// votes, acceptance) bumps the question's version and last-modified time inside the transaction
+// that made the change, so a committed change always comes with a new version. Vote changes also
+// hand their new counts to QuestionCacheService, which refreshes the cached entries in place.
+@Service
+public class QuestionVersionService {
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private AnswerRepository answerRepository;
+    
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    // epochMillis is the cache epoch at load time; it moves when cached bodies change without a
+    // version bump (tag or user renames) and on restart
+    public record VersionStamp(long version, long epochMillis, LocalDateTime lastModified) {
+        
+        // Strong ETag; each representation of a question (question, answers, page, gzip page) gets its own prefix
+        public String etag(String representation) {
+            return "\"" + representation + version + "-" + Long.toString(epochMillis, 36) + "\"";
+        }
+        
+        public long lastModifiedMillis() {
+            if (lastModified == null) {
+                return epochMillis;
+            }
+            return Math.max(epochMillis, lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+    
+    // Served from cache; empty if the question does not exist
+    public Optional<VersionStamp> getVersion(Long questionId) {
+        return Optional.ofNullable(questionCacheService.getVersion(questionId, id -> {
+            long epochMillis = questionCacheService.epochMillis();
+            return questionRepository.findVersionByQuestionId(id)
+                    .map(row -> new VersionStamp(row.getContentVersion(), epochMillis, row.getLastModified()))
+                    .orElse(null);
+        }));
+    }
+    
+    // Every publisher is transactional; the update takes the row lock the change usually holds already
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        if (event.change() == Change.DELETED) {
+            return;
+        }
+        questionRepository.bumpContentVersion(event.questionId(), LocalDateTime.now());
+        if (event.change() == Change.VOTES || event.change() == Change.ANSWER_VOTES) {
+            refreshVoteCountsAfterCommit(event.questionId(), event.answerId());
+        }
+    }
+    
+    // Read while the bump holds the question's row lock, so no other change lands between the
+    // previous version and this one. Only rows this transaction updated are read (its own writes
+    // are current even under repeatable read); the rest are unchanged since the previous version.
+    private void refreshVoteCountsAfterCommit(Long questionId, Long answerId) {
+        QuestionVoteCountRow row = questionRepository.findVoteCountsByQuestionId(questionId).orElse(null);
+        if (row == null) {
+            return;
+        }
+        long version = row.getContentVersion();
+        VoteCounts question = answerId != null ? null
+                : new VoteCounts(questionId, row.getUpvoteCount(), row.getDownvoteCount());
+        List<VoteCounts> answers = answerId == null ? null
+                : answerRepository.findVoteCountsByAnswerId(answerId)
+                        .map(answer -> List.of(new VoteCounts(answer.getAnswerId(), answer.getUpvoteCount(), answer.getDownvoteCount())))
+                        .orElse(List.of());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Ahead of the event listeners that drop the version stamp, so the next stamp finds the entries moved
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+            
+            @Override
+            public void afterCommit() {
+                questionCacheService.refreshVoteCounts(questionId, version, question, answers);
+            }
+        });
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.example.main.service;
+
+import com.example.main.model.ReputationLedgerEntry;
+import com.example.main.repository.ReputationLedgerRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Write-behind for user scores. A vote only appends ledger rows, so popular authors no longer make
+// every vote queue on the lock of their users row. Committed entries are summed per user in striped
+// in-memory accumulators and a short-interval flush adds each sum to users.score in one update.
+// A flush claims the entries it applies in the same transaction, so an entry is counted once even
+// when this instance crashes mid-way; entries left unclaimed (crash, failed flush, another instance
+// gone) are applied by the replay once they are older than the grace period.
+@Service
+public class ReputationLedgerService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReputationLedgerService.class);
+    
+    private static final int STRIPES = 64;
+    private static final int ENTRIES_PER_FLUSH = 1000;
+    
+    @Autowired
+    private ReputationLedgerRepository reputationLedgerRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${stackunderflow.reputation.replay-grace-seconds:60}")
+    private long replayGraceSeconds;
+    
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    
+    // Drained by a running flush but not committed yet; still part of the live score
+    private final Map<Long, BigDecimal> inFlight = new ConcurrentHashMap<>();
+    
+    public ReputationLedgerService() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    // Called before the vote transaction commits, so the entries commit (or roll back) with it
+    public List<ReputationLedgerEntry> append(Map<Long, BigDecimal> deltas) {
+        List<ReputationLedgerEntry> entries = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+            if (delta.getValue().signum() != 0) {
+                ReputationLedgerEntry entry = new ReputationLedgerEntry();
+                entry.setUserId(delta.getKey());
+                entry.setDelta(delta.getValue());
+                entries.add(entry);
+            }
+        }
+        return reputationLedgerRepository.saveAll(entries);
+    }
+    
+    // Called once the entries are committed
+    public void accumulate(Collection<ReputationLedgerEntry> entries) {
+        for (ReputationLedgerEntry entry : entries) {
+            stripeOf(entry.getUserId()).add(entry.getUserId(), entry.getDelta(), List.of(entry.getEntryId()));
+        }
+    }
+    
+    // Committed score changes not yet in users.score
+    public BigDecimal pendingScore(Long userId) {
+        BigDecimal pending = stripeOf(userId).get(userId);
+        BigDecimal flushing = inFlight.get(userId);
+        return flushing == null ? pending : pending.add(flushing);
+    }
+    
+    @Scheduled(fixedDelayString = "${stackunderflow.reputation.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, PendingScore> drained = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(drained, inFlight);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        
+        // Users are never split across chunks, so a failed chunk goes back whole
+        List<Long> chunkUsers = new ArrayList<>();
+        List<Long> chunkEntries = new ArrayList<>();
+        for (Map.Entry<Long, PendingScore> user : drained.entrySet()) {
+            chunkUsers.add(user.getKey());
+            chunkEntries.addAll(user.getValue().entryIds);
+            if (chunkEntries.size() >= ENTRIES_PER_FLUSH) {
+                flushChunk(chunkUsers, chunkEntries, drained);
+                chunkUsers = new ArrayList<>();
+                chunkEntries = new ArrayList<>();
+            }
+        }
+        if (!chunkUsers.isEmpty()) {
+            flushChunk(chunkUsers, chunkEntries, drained);
+        }
+    }
+    
+    // Applies entries that no flush picked up: left by a crash, a failed flush or a stopped instance.
+    // The grace period keeps it away from entries a live instance is about to flush itself.
+    @Scheduled(fixedDelayString = "${stackunderflow.reputation.replay-interval-ms:60000}")
+    public void replay() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(replayGraceSeconds);
+        long replayed = 0;
+        while (true) {
+            List<Long> entryIds = reputationLedgerRepository.findUnflushedBefore(cutoff,
+                    PageRequest.of(0, ENTRIES_PER_FLUSH));
+            if (entryIds.isEmpty()) {
+                break;
+            }
+            replayed += applyClaimed(entryIds);
+            if (entryIds.size() < ENTRIES_PER_FLUSH) {
+                break;
+            }
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} reputation ledger entries", replayed);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    private void flushChunk(List<Long> userIds, List<Long> entryIds, Map<Long, PendingScore> drained) {
+        try {
+            applyClaimed(entryIds);
+        } catch (RuntimeException e) {
+            log.warn("Reputation flush failed, retrying later", e);
+            for (Long userId : userIds) {
+                PendingScore score = drained.get(userId);
+                stripeOf(userId).add(userId, score.sum, score.entryIds);
+            }
+        } finally {
+            for (Long userId : userIds) {
+                inFlight.computeIfPresent(userId, (id, sum) -> {
+                    BigDecimal rest = sum.subtract(drained.get(id).sum);
+                    return rest.signum() == 0 ? null : rest;
+                });
+            }
+        }
+    }
+    
+    // Claims the entries and adds what was claimed to users.score in one transaction. Entries another
+    // flush or replay claimed first are skipped, so nothing is applied twice.
+    private int applyClaimed(List<Long> entryIds) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Integer claimed = transaction.execute(status -> {
+            String flushId = UUID.randomUUID().toString();
+            int count = reputationLedgerRepository.claim(entryIds, flushId);
+            if (count == 0) {
+                return 0;
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (ReputationLedgerRepository.UserDeltaRow row : reputationLedgerRepository.sumByFlushId(flushId)) {
+                if (row.getDelta().signum() != 0) {
+                    rows.add(new Object[] {row.getDelta(), row.getUserId()});
+                }
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE users SET score = score + ? WHERE user_id = ?", rows);
+            }
+            return count;
+        });
+        return claimed == null ? 0 : claimed;
+    }
+    
+    private Stripe stripeOf(Long userId) {
+        return stripes[(int) Math.floorMod(userId, (long) STRIPES)];
+    }
+    
+    private static class PendingScore {
+        private BigDecimal sum = BigDecimal.ZERO;
+        private final List<Long> entryIds = new ArrayList<>();
+    }
+    
+    private static class Stripe {
+        
+        private Map<Long, PendingScore> scores = new HashMap<>();
+        
+        synchronized void add(Long userId, BigDecimal delta, Collection<Long> entryIds) {
+            PendingScore score = scores.computeIfAbsent(userId, id -> new PendingScore());
+            score.sum = score.sum.add(delta);
+            score.entryIds.addAll(entryIds);
+        }
+        
+        synchronized BigDecimal get(Long userId) {
+            PendingScore score = scores.get(userId);
+            return score == null ? BigDecimal.ZERO : score.sum;
+        }
+        
+        // Moves the sums to inFlight under the lock, so a concurrent read never misses them
+        synchronized void drainTo(Map<Long, PendingScore> drained, Map<Long, BigDecimal> inFlight) {
+            for (Map.Entry<Long, PendingScore> score : scores.entrySet()) {
+                inFlight.merge(score.getKey(), score.getValue().sum, BigDecimal::add);
+                drained.put(score.getKey(), score.getValue());
+            }
+            if (!scores.isEmpty()) {
+                scores = new HashMap<>();
+            }
+        }
+    }
+} 
\ No newline at end of file
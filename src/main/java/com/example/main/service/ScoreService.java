@@ -0,0 +1,61 @@
+package com.example.main.service;
+
+import com.example.main.model.ReputationLedgerEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+
+// User score changes made by a transaction (a vote and its downvote penalty, a vote flip) are summed
+// per user and appended to the reputation ledger just before it commits, so they exist only if the
+// vote itself commits. Once committed they are handed to ReputationLedgerService, which adds them
+// to users.score in coalesced batches instead of every vote updating the author's row.
+@Service
+public class ScoreService {
+    
+    @Autowired
+    private ReputationLedgerService reputationLedgerService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addScore(Long userId, BigDecimal delta) {
+        PendingScores pending = (PendingScores) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingScores();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.deltas.merge(userId, delta, BigDecimal::add);
+    }
+    
+    private class PendingScores implements TransactionSynchronization {
+        
+        private final Map<Long, BigDecimal> deltas = new HashMap<>();
+        private List<ReputationLedgerEntry> entries = List.of();
+        
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entries = reputationLedgerService.append(deltas);
+        }
+        
+        @Override
+        public void afterCommit() {
+            reputationLedgerService.accumulate(entries);
+            leaderboardService.record(entries);
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ScoreService.this);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,287 @@
+package com.example.main.service;
+
+import com.example.main.dto.SuggestionDto;
+import com.example.main.dto.SuggestionsDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.model.Tag;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.QuestionRepository.QuestionTagRow;
+import com.example.main.repository.QuestionRepository.QuestionTitleRow;
+import com.example.main.repository.TagRepository;
+import com.example.main.repository.TagRepository.TagUsageRow;
+import com.example.main.search.PrefixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Typeahead over tag names (weighted by how many questions use them) and question titles
+// (weighted by vote score), held in memory and kept current as tags and questions change
+@Service
+public class SuggestionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(SuggestionService.class);
+    
+    public static final int MAX_SUGGESTIONS = 20;
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private TagRepository tagRepository;
+    
+    @Autowired
+    @Qualifier("questionEventExecutor")
+    private TaskExecutor questionEventExecutor;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Questions with a vote refresh queued but not yet started
+    private final Set<Long> pendingVoteRefreshes = ConcurrentHashMap.newKeySet();
+    
+    private final PrefixTrie<SuggestionDto> tagTrie = new PrefixTrie<>();
+    private final PrefixTrie<SuggestionDto> titleTrie = new PrefixTrie<>();
+    
+    // One monitor per stripe of question ids, held by refresh across its reads
+    private final Object[] refreshLocks = Stream.generate(Object::new).limit(64).toArray();
+    
+    // Questions changed while load runs; null once it is done
+    private Set<Long> changedDuringLoad = new HashSet<>();
+    
+    // What is currently in the tries, so entries can be moved or reweighted without a query
+    private final Map<Long, TagEntry> tags = new HashMap<>();
+    private final Map<Long, QuestionEntry> questions = new HashMap<>();
+    
+    private static final class TagEntry {
+        String name;
+        long usage;
+        
+        TagEntry(String name, long usage) {
+            this.name = name;
+            this.usage = usage;
+        }
+    }
+    
+    private record QuestionEntry(String titleKey, Set<Long> tagIds) {
+    }
+    
+    public SuggestionsDto suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new SuggestionsDto();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return new SuggestionsDto(copy(tagTrie.topK(key, size)), copy(titleTrie.topK(key, size)));
+    }
+    
+    // Each chunk is read outside the monitor and added under it. Refreshes for questions that change
+    // meanwhile wait until the load is done, so a chunk read before the change never overwrites them.
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<TagUsageRow> usage = tagRepository.findUsageCounts();
+        synchronized (this) {
+            for (TagUsageRow row : usage) {
+                // A tag saved since keeps its newer name
+                TagEntry entry = tags.computeIfAbsent(row.getTagId(), id -> new TagEntry(row.getName(), 0));
+                entry.usage = row.getUsageCount();
+                putTag(row.getTagId(), entry);
+            }
+        }
+        
+        long lastId = 0;
+        List<QuestionTitleRow> chunk;
+        do {
+            chunk = questionRepository.findTitlesAfter(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            Map<Long, Set<Long>> tagIds = loadTagIds(chunk);
+            synchronized (this) {
+                for (QuestionTitleRow row : chunk) {
+                    String titleKey = titleKey(row.getTitle(), row.getQuestionId());
+                    titleTrie.put(titleKey, new SuggestionDto(row.getQuestionId(), row.getTitle()), row.getScore());
+                    questions.put(row.getQuestionId(),
+                            new QuestionEntry(titleKey, tagIds.getOrDefault(row.getQuestionId(), Set.of())));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getQuestionId();
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        
+        Set<Long> changed;
+        synchronized (this) {
+            changed = changedDuringLoad;
+            changedDuringLoad = null;
+        }
+        for (Long questionId : changed) {
+            refresh(questionId, false);
+        }
+        log.info("Suggestions loaded with {} tags and {} titles", tagTrie.size(), titleTrie.size());
+    }
+    
+    // Called when a tag is created or renamed
+    public synchronized void tagSaved(Tag tag) {
+        TagEntry entry = tags.get(tag.getTagId());
+        if (entry == null) {
+            entry = new TagEntry(tag.getName(), 0);
+            tags.put(tag.getTagId(), entry);
+        } else if (!entry.name.equals(tag.getName())) {
+            tagTrie.remove(normalize(entry.name));
+            entry.name = tag.getName();
+        }
+        putTag(tag.getTagId(), entry);
+    }
+    
+    public synchronized void tagDeleted(Long tagId) {
+        TagEntry entry = tags.remove(tagId);
+        if (entry != null) {
+            tagTrie.remove(normalize(entry.name));
+        }
+    }
+    
+    // Runs after the publishing transaction commits, like the search index update. Answers do not
+    // show up in suggestions, and question votes go through onVotesChanged.
+    @TransactionalEventListener(fallbackExecution = true,
+            condition = "#event.change() == T(com.example.main.event.QuestionChangedEvent.Change).CONTENT"
+                    + " || #event.change() == T(com.example.main.event.QuestionChangedEvent.Change).DELETED")
+    @Async("questionEventExecutor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        refresh(event.questionId(), event.change() == QuestionChangedEvent.Change.DELETED);
+    }
+    
+    // Title weights follow the vote score. Votes come in far faster than anything else, so at most one
+    // refresh per question is queued: votes arriving before it starts are covered by its read.
+    @TransactionalEventListener(fallbackExecution = true,
+            condition = "#event.change() == T(com.example.main.event.QuestionChangedEvent.Change).VOTES")
+    public void onVotesChanged(QuestionChangedEvent event) {
+        Long questionId = event.questionId();
+        if (!pendingVoteRefreshes.add(questionId)) {
+            return;
+        }
+        questionEventExecutor.execute(() -> {
+            pendingVoteRefreshes.remove(questionId);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.executeWithoutResult(status -> refresh(questionId, false));
+        });
+    }
+    
+    // Reads outside the monitor, so tagSaved and the other refreshes never wait on the database.
+    // Refreshes of one question hold its stripe throughout, so the later read is always applied last.
+    private void refresh(Long questionId, boolean deleted) {
+        synchronized (refreshLocks[Math.floorMod(questionId.hashCode(), refreshLocks.length)]) {
+            synchronized (this) {
+                if (changedDuringLoad != null) {
+                    changedDuringLoad.add(questionId);
+                    return;
+                }
+            }
+            
+            List<QuestionTitleRow> rows = deleted
+                    ? List.of()
+                    : questionRepository.findTitlesByQuestionIds(List.of(questionId));
+            List<QuestionTagRow> tagRows = rows.isEmpty()
+                    ? List.of()
+                    : questionRepository.findTagsByQuestionIds(List.of(questionId));
+            synchronized (this) {
+                apply(questionId, rows.isEmpty() ? null : rows.get(0), tagRows);
+            }
+        }
+    }
+    
+    private void apply(Long questionId, QuestionTitleRow row, List<QuestionTagRow> tagRows) {
+        QuestionEntry previous = questions.remove(questionId);
+        if (previous != null) {
+            titleTrie.remove(previous.titleKey());
+        }
+        
+        Set<Long> tagIds = Set.of();
+        if (row != null) {
+            for (QuestionTagRow tagRow : tagRows) {
+                tags.computeIfAbsent(tagRow.getTagId(), id -> new TagEntry(tagRow.getName(), 0));
+            }
+            tagIds = tagRows.stream().map(QuestionTagRow::getTagId).collect(Collectors.toSet());
+            
+            String titleKey = titleKey(row.getTitle(), questionId);
+            titleTrie.put(titleKey, new SuggestionDto(questionId, row.getTitle()), row.getScore());
+            questions.put(questionId, new QuestionEntry(titleKey, tagIds));
+        }
+        
+        // Only tags whose usage actually changed are reweighted
+        Set<Long> oldTagIds = previous != null ? previous.tagIds() : Set.of();
+        for (Long tagId : oldTagIds) {
+            if (!tagIds.contains(tagId)) {
+                adjustUsage(tagId, -1);
+            }
+        }
+        for (Long tagId : tagIds) {
+            if (!oldTagIds.contains(tagId)) {
+                adjustUsage(tagId, 1);
+            }
+        }
+    }
+    
+    private void adjustUsage(Long tagId, long delta) {
+        TagEntry entry = tags.get(tagId);
+        if (entry != null) {
+            entry.usage = Math.max(0, entry.usage + delta);
+            putTag(tagId, entry);
+        }
+    }
+    
+    private void putTag(Long tagId, TagEntry entry) {
+        tagTrie.put(normalize(entry.name), new SuggestionDto(tagId, entry.name), entry.usage);
+    }
+    
+    private Map<Long, Set<Long>> loadTagIds(List<QuestionTitleRow> rows) {
+        if (rows.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> questionIds = rows.stream()
+                .map(QuestionTitleRow::getQuestionId)
+                .collect(Collectors.toList());
+        Map<Long, Set<Long>> tagIds = new HashMap<>();
+        for (QuestionTagRow row : questionRepository.findTagsByQuestionIds(questionIds)) {
+            tagIds.computeIfAbsent(row.getQuestionId(), id -> new HashSet<>()).add(row.getTagId());
+        }
+        return tagIds;
+    }
+    
+    // Trie entries are shared, so callers get their own copies
+    private List<SuggestionDto> copy(List<SuggestionDto> suggestions) {
+        return suggestions.stream()
+                .map(suggestion -> new SuggestionDto(suggestion.getId(), suggestion.getText()))
+                .collect(Collectors.toList());
+    }
+    
+    // Identical titles stay distinct entries; the NUL separator keeps the id out of typed prefixes
+    private static String titleKey(String title, Long questionId) {
+        return normalize(title) + '\u0000' + questionId;
+    }
+    
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.main.service;
+
+import com.example.main.model.Tag;
+import com.example.main.repository.TagRepository;
+import com.example.main.repository.TagRepository.TagNameRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide tag name -> id dictionary, loaded at startup and filled in as tags are looked up or
+// created. Names are lower-cased like the case-insensitive collation of tags.name, so "Java" and
+// "java" resolve to the same row here as they do in the database. Only renames and deletes made
+// through this instance are seen; TagService keeps it current for those.
+@Service
+public class TagDictionaryService {
+    
+    private static final Logger log = LoggerFactory.getLogger(TagDictionaryService.class);
+    
+    @Autowired
+    private TagRepository tagRepository;
+    
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (TagNameRow row : tagRepository.findAllNames()) {
+            idsByName.put(normalize(row.getName()), row.getTagId());
+        }
+        log.info("Tag dictionary loaded with {} tags", idsByName.size());
+    }
+    
+    public static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    // Ids of the names that exist, keyed by the name as given. Names missing from memory are looked
+    // up together in one query.
+    public Map<String, Long> resolve(Collection<String> names) {
+        Map<String, Long> ids = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String name : names) {
+            Long id = idsByName.get(normalize(name));
+            if (id != null) {
+                ids.put(name, id);
+            } else {
+                misses.add(name);
+            }
+        }
+        if (misses.isEmpty()) {
+            return ids;
+        }
+        
+        for (TagNameRow row : tagRepository.findByNameIn(misses)) {
+            idsByName.put(normalize(row.getName()), row.getTagId());
+        }
+        for (String name : misses) {
+            Long id = idsByName.get(normalize(name));
+            if (id != null) {
+                ids.put(name, id);
+            }
+        }
+        return ids;
+    }
+    
+    // Memory only
+    public Long peek(String name) {
+        return idsByName.get(normalize(name));
+    }
+    
+    public void put(Long tagId, String name) {
+        idsByName.put(normalize(name), tagId);
+    }
+    
+    public void remove(Long tagId) {
+        idsByName.values().removeIf(tagId::equals);
+    }
+    
+    // Called outside any transaction, so it commits straight away on one pooled connection and the new
+    // tag is visible to every concurrent creator; a tag whose question is then rolled back simply stays
+    // unused. The caller adds it to the dictionary.
+    @Transactional
+    public Tag insert(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tagRepository.save(tag);
+    }
+    
+    // Also called outside any transaction, so it reads what other instances committed up to now
+    @Transactional(readOnly = true)
+    public Optional<Long> findCommitted(String name) {
+        return tagRepository.findByName(name)
+                .map(tag -> {
+                    put(tag.getTagId(), tag.getName());
+                    return tag.getTagId();
+                });
+    }
+} 
\ No newline at end of file
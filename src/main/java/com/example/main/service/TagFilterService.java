@@ -0,0 +1,185 @@
+package com.example.main.service;
+
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.QuestionRepository.QuestionTagRow;
+import com.example.main.search.CompressedBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Per-tag compressed bitmaps of question ids, so boolean tag filters are set operations in memory
+@Service
+public class TagFilterService {
+    
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    private final Map<Long, CompressedBitmap> questionsByTag = new HashMap<>();
+    
+    // Every question, the starting set when a filter has no all/any terms
+    private final CompressedBitmap allQuestions = new CompressedBitmap();
+    
+    // Tags each question is in the bitmaps under, so a change touches only the tags that moved
+    private final Map<Long, Set<Long>> tagsByQuestion = new HashMap<>();
+    
+    // Questions updated by events while load() runs; load() leaves them alone, as the event read them
+    // after their last change and load() may have read them before. null once loaded.
+    private Set<Long> changedDuringLoad = new HashSet<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long lastId = 0;
+        List<Long> chunk;
+        do {
+            chunk = questionRepository.findIdsAfter(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            List<QuestionTagRow> rows = chunk.isEmpty() ? List.of() : questionRepository.findTagsByQuestionIds(chunk);
+            Map<Long, Set<Long>> tagIds = new HashMap<>();
+            for (QuestionTagRow row : rows) {
+                tagIds.computeIfAbsent(row.getQuestionId(), id -> new HashSet<>()).add(row.getTagId());
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long questionId : chunk) {
+                    if (!changedDuringLoad.contains(questionId)) {
+                        update(questionId, true, tagIds.getOrDefault(questionId, Set.of()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Up to limit question ids below the cursor, highest first, that carry every tag in allTagIds,
+    // at least one in anyTagIds (when given) and none in noneTagIds
+    public List<Long> findQuestionIds(Collection<Long> allTagIds, Collection<Long> anyTagIds,
+                                      Collection<Long> noneTagIds, long before, int limit) {
+        CompressedBitmap result;
+        lock.readLock().lock();
+        try {
+            result = null;
+            for (Long tagId : allTagIds) {
+                CompressedBitmap tagged = questionsByTag.get(tagId);
+                if (tagged == null) {
+                    return List.of();
+                }
+                result = result == null ? tagged.copy() : CompressedBitmap.and(result, tagged);
+            }
+            if (!anyTagIds.isEmpty()) {
+                CompressedBitmap union = new CompressedBitmap();
+                for (Long tagId : anyTagIds) {
+                    CompressedBitmap tagged = questionsByTag.get(tagId);
+                    if (tagged != null) {
+                        union = CompressedBitmap.or(union, tagged);
+                    }
+                }
+                result = result == null ? union : CompressedBitmap.and(result, union);
+            }
+            if (result == null) {
+                result = allQuestions.copy();
+            }
+            for (Long tagId : noneTagIds) {
+                CompressedBitmap tagged = questionsByTag.get(tagId);
+                if (tagged != null) {
+                    result = CompressedBitmap.andNot(result, tagged);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Long> questionIds = new ArrayList<>();
+        long next = result.previous(before - 1);
+        while (next >= 0 && questionIds.size() < limit) {
+            questionIds.add(next);
+            next = result.previous(next - 1);
+        }
+        return questionIds;
+    }
+    
+    // Runs after the publishing transaction commits, like the search index update. Only content
+    // changes and deletes can move tags, so nothing else is queued.
+    @TransactionalEventListener(fallbackExecution = true,
+            condition = "#event.change() == T(com.example.main.event.QuestionChangedEvent.Change).CONTENT"
+                    + " || #event.change() == T(com.example.main.event.QuestionChangedEvent.Change).DELETED")
+    @Async("questionEventExecutor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        Long questionId = event.questionId();
+        Set<Long> tagIds = event.change() == QuestionChangedEvent.Change.DELETED
+                ? Set.of()
+                : questionRepository.findTagsByQuestionIds(List.of(questionId)).stream()
+                        .map(QuestionTagRow::getTagId)
+                        .collect(Collectors.toSet());
+        boolean exists = event.change() != QuestionChangedEvent.Change.DELETED
+                && questionRepository.existsById(questionId);
+        
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(questionId);
+            }
+            update(questionId, exists, exists ? tagIds : Set.of());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Caller holds the write lock
+    private void update(Long questionId, boolean exists, Set<Long> tagIds) {
+        if (exists) {
+            allQuestions.add(questionId);
+        } else {
+            allQuestions.remove(questionId);
+        }
+        Set<Long> oldTagIds = exists ? tagsByQuestion.put(questionId, tagIds) : tagsByQuestion.remove(questionId);
+        if (oldTagIds == null) {
+            oldTagIds = Set.of();
+        }
+        for (Long tagId : oldTagIds) {
+            if (!tagIds.contains(tagId)) {
+                CompressedBitmap tagged = questionsByTag.get(tagId);
+                if (tagged != null) {
+                    tagged.remove(questionId);
+                }
+            }
+        }
+        for (Long tagId : tagIds) {
+            if (!oldTagIds.contains(tagId)) {
+                questionsByTag.computeIfAbsent(tagId, id -> new CompressedBitmap()).add(questionId);
+            }
+        }
+    }
+}
@@ -4,10 +4,23 @@ import com.example.main.dto.TagDto;
 import com.example.main.model.Tag;
 import com.example.main.repository.TagRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,6 +29,22 @@ public class TagService {
     @Autowired
     private TagRepository tagRepository;
     
+    @Autowired
+    private SuggestionService suggestionService;
+    
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    @Autowired
+    private TagDictionaryService tagDictionaryService;
+    
+    // How long a creator waits for a concurrent insert of the same name
+    @Value("${stackunderflow.tags.create-timeout-ms:5000}")
+    private long createTimeoutMs;
+    
+    // Tag creations in progress by normalized name, so concurrent creators share one insert
+    private final Map<String, CompletableFuture<Long>> pendingCreates = new ConcurrentHashMap<>();
+    
     public List<TagDto> getAllTags() {
         return tagRepository.findAll().stream()
                 .map(this::convertToDto)
@@ -37,6 +66,8 @@ public class TagService {
         tag.setName(name);
         
         Tag savedTag = tagRepository.save(tag);
+        tagDictionaryService.put(savedTag.getTagId(), savedTag.getName());
+        suggestionService.tagSaved(savedTag);
         return convertToDto(savedTag);
     }
     
@@ -44,29 +75,113 @@ public class TagService {
         return tagRepository.findById(id)
                 .map(tag -> {
                     tag.setName(name);
-                    return convertToDto(tagRepository.save(tag));
+                    Tag savedTag = tagRepository.save(tag);
+                    tagDictionaryService.remove(savedTag.getTagId());
+                    tagDictionaryService.put(savedTag.getTagId(), savedTag.getName());
+                    suggestionService.tagSaved(savedTag);
+                    // Cached questions carry tag names
+                    questionCacheService.invalidateAll();
+                    return convertToDto(savedTag);
                 });
     }
     
     public boolean deleteTag(Long id) {
         if (tagRepository.existsById(id)) {
             tagRepository.deleteById(id);
+            tagDictionaryService.remove(id);
+            suggestionService.tagDeleted(id);
+            questionCacheService.invalidateAll();
             return true;
         }
         return false;
     }
     
-    public Tag findOrCreateTag(String name) {
-        return tagRepository.findByName(name)
-                .orElseGet(() -> {
-                    Tag newTag = new Tag();
-                    newTag.setName(name);
-                    return tagRepository.save(newTag);
-                });
+    // Ids of the tags for the given names in order, creating the missing ones. Must run before the
+    // caller opens its transaction: each insert commits on its own, and a caller already holding a
+    // pooled connection would otherwise need a second one for it. Known names cost no query.
+    public List<Long> findOrCreateTagIds(Collection<String> names) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Tags must be created before the transaction that uses them");
+        }
+        Map<String, Long> existing = tagDictionaryService.resolve(names);
+        Set<Long> tagIds = new LinkedHashSet<>();
+        for (String name : names) {
+            Long tagId = existing.get(name);
+            tagIds.add(tagId != null ? tagId : createOnce(name));
+        }
+        return new ArrayList<>(tagIds);
+    }
+    
+    // References for ids from findOrCreateTagIds, inside the caller's transaction. Hibernate
+    // initializes them in one batch if the tags are read.
+    public List<Tag> getReferences(List<Long> tagIds) {
+        List<Tag> tags = new ArrayList<>(tagIds.size());
+        for (Long tagId : tagIds) {
+            tags.add(tagRepository.getReferenceById(tagId));
+        }
+        return tags;
+    }
+    
+    // Ids of the tags that exist, one per name found; unknown names are left out
+    public List<Long> findTagIds(Collection<String> names) {
+        return new ArrayList<>(tagDictionaryService.resolve(names).values());
+    }
+    
+    public Optional<Long> findTagIdByName(String name) {
+        return Optional.ofNullable(tagDictionaryService.resolve(List.of(name)).get(name));
+    }
+    
+    // Single-flight: the first caller for a name inserts it, concurrent callers wait for that insert
+    private Long createOnce(String name) {
+        String key = TagDictionaryService.normalize(name);
+        CompletableFuture<Long> created = new CompletableFuture<>();
+        CompletableFuture<Long> pending = pendingCreates.putIfAbsent(key, created);
+        if (pending != null) {
+            return await(pending, name);
+        }
+        
+        try {
+            // Another flight may have finished between our lookup and putIfAbsent
+            Long tagId = tagDictionaryService.peek(name);
+            if (tagId == null) {
+                tagId = insertTag(name);
+            }
+            created.complete(tagId);
+            return tagId;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingCreates.remove(key, created);
+        }
     }
     
-    public Optional<Tag> findTagEntityByName(String name) {
-        return tagRepository.findByName(name);
+    private Long await(CompletableFuture<Long> pending, String name) {
+        try {
+            return pending.get(createTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for tag " + name + " to be created");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for tag " + name + " to be created");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    private Long insertTag(String name) {
+        try {
+            Tag savedTag = tagDictionaryService.insert(name);
+            tagDictionaryService.put(savedTag.getTagId(), savedTag.getName());
+            suggestionService.tagSaved(savedTag);
+            return savedTag.getTagId();
+        } catch (DataIntegrityViolationException e) {
+            // Created by another instance since our lookup
+            return tagDictionaryService.findCommitted(name).orElseThrow(() -> e);
+        }
     }
     
     private TagDto convertToDto(Tag tag) {
@@ -5,7 +5,9 @@ import com.example.main.model.User;
 import com.example.main.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -19,6 +21,21 @@ public class UserService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private BanStatusService banStatusService;
+    
+    @Autowired
+    private AuthorizationService authorizationService;
+    
+    @Autowired
+    private QuestionCacheService questionCacheService;
+    
+    @Autowired
+    private ReputationLedgerService reputationLedgerService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
     public List<UserDto> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(this::convertToDto)
@@ -41,11 +58,12 @@ public class UserService {
         user.setEmail(email);
         user.setPasswordHash(password); // Store password as plain text for now
         user.setPhoneNumber(phoneNumber);
-        user.setScore(0);
+        user.setScore(BigDecimal.ZERO);
         user.setBanned(false);
         user.setModerator(false);
         
         User savedUser = userRepository.save(user);
+        leaderboardService.userCreated(savedUser.getUserId());
         return convertToDto(savedUser);
     }
     
@@ -61,13 +79,18 @@ public class UserService {
                     if (phoneNumber != null) {
                         user.setPhoneNumber(phoneNumber);
                     }
-                    return convertToDto(userRepository.save(user));
+                    User savedUser = userRepository.save(user);
+                    // Cached questions and answers carry author usernames
+                    if (username != null) {
+                        questionCacheService.invalidateAll();
+                    }
+                    return convertToDto(savedUser);
                 });
     }
     
+    @Transactional
     public Optional<UserDto> banUser(Long id, boolean banned, String reason, Long moderatorId) {
-        Optional<User> moderatorOpt = userRepository.findById(moderatorId);
-        if (moderatorOpt.isEmpty() || !moderatorOpt.get().isModerator()) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return Optional.empty(); // Only moderators can ban users
         }
         
@@ -82,46 +105,53 @@ public class UserService {
                     if (banned) {
                         user.setBanReason(reason);
                         
-                        // Send notifications
-                        notificationService.sendBanNotificationEmail(user, reason);
-                        notificationService.sendBanNotificationSMS(user, reason);
+                        // Queued in this transaction; sent in the background once it commits
+                        notificationService.queueBanNotificationEmail(user, reason);
+                        notificationService.queueBanNotificationSMS(user, reason);
                     } else {
                         user.setBanReason(null);
                     }
                     
-                    return convertToDto(userRepository.save(user));
+                    User savedUser = userRepository.save(user);
+                    banStatusService.updateAfterCommit(savedUser.getUserId(), savedUser.isBanned());
+                    return convertToDto(savedUser);
                 });
     }
     
     public Optional<UserDto> setModerator(Long id, boolean isModerator, Long adminId) {
-        Optional<User> adminOpt = userRepository.findById(adminId);
-        if (adminOpt.isEmpty() || !adminOpt.get().isModerator()) {
+        if (!authorizationService.isModerator(adminId)) {
             return Optional.empty(); // Only existing moderators can promote others
         }
         
         return userRepository.findById(id)
                 .map(user -> {
                     user.setModerator(isModerator);
-                    return convertToDto(userRepository.save(user));
+                    User savedUser = userRepository.save(user);
+                    authorizationService.moderatorChanged(savedUser.getUserId(), savedUser.isModerator());
+                    return convertToDto(savedUser);
                 });
     }
     
-    public Optional<UserDto> updateScore(Long id, float scoreChange) {
-        return userRepository.findById(id)
-                .map(user -> {
-                    user.setScore(user.getScore() + scoreChange);
-                    return convertToDto(userRepository.save(user));
-                });
+    // One atomic update, so concurrent changes to the same user are never lost
+    public Optional<UserDto> updateScore(Long id, BigDecimal scoreChange) {
+        if (userRepository.addScore(id, scoreChange) == 0) {
+            return Optional.empty();
+        }
+        leaderboardService.scoreChanged(id, scoreChange);
+        return getUserById(id);
     }
     
     public boolean deleteUser(Long id, Long moderatorId) {
-        Optional<User> moderatorOpt = userRepository.findById(moderatorId);
-        if (moderatorOpt.isEmpty() || !moderatorOpt.get().isModerator()) {
+        if (!authorizationService.isModerator(moderatorId)) {
             return false; // Only moderators can delete users
         }
         
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            banStatusService.invalidate(id);
+            leaderboardService.userDeleted(id);
+            authorizationService.moderatorChanged(id, false);
+            questionCacheService.invalidateAll();
             return true;
         }
         return false;
@@ -152,9 +182,7 @@ public class UserService {
     }
     
     public boolean isModerator(Long userId) {
-        return userRepository.findById(userId)
-                .map(User::isModerator)
-                .orElse(false);
+        return authorizationService.isModerator(userId);
     }
     
     private UserDto convertToDto(User user) {
@@ -162,7 +190,8 @@ public class UserService {
         dto.setUserId(user.getUserId());
         dto.setUsername(user.getUsername());
         dto.setEmail(user.getEmail());
-        dto.setScore(user.getScore());
+        // Votes reach users.score with the next ledger flush; count them already
+        dto.setScore(user.getScore().add(reputationLedgerService.pendingScore(user.getUserId())));
         dto.setBanned(user.isBanned());
         dto.setModerator(user.isModerator());
         dto.setPhoneNumber(user.getPhoneNumber());
@@ -0,0 +1,47 @@
+package com.example.main.service;
+
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.VoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class VoteCountRepairService {
+    
+    private static final Logger log = LoggerFactory.getLogger(VoteCountRepairService.class);
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private AnswerRepository answerRepository;
+    
+    @Autowired
+    private VoteRepository voteRepository;
+    
+    // ddl-auto adds the counter columns to an existing database as zeros. Votes with every counter
+    // still at zero can only mean that, so they are filled in now rather than at the next repair.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNewCounters() {
+        if (voteRepository.existsByVoteTypeNotNull()
+                && !questionRepository.existsByUpvoteCountGreaterThanOrDownvoteCountGreaterThan(0, 0)
+                && !answerRepository.existsByUpvoteCountGreaterThanOrDownvoteCountGreaterThan(0, 0)) {
+            log.info("Vote counters are all zero but votes exist; filling them in");
+            repairVoteCounts();
+        }
+    }
+    
+    // Recompute the upvote/downvote counters from the votes table to fix any drift
+    @Scheduled(cron = "${stackunderflow.votes.repair-cron:0 0 4 * * *}")
+    public void repairVoteCounts() {
+        int questions = questionRepository.recomputeVoteCounts();
+        int answers = answerRepository.recomputeVoteCounts();
+        log.debug("Recomputed vote counts for {} questions and {} answers", questions, answers);
+    }
+}
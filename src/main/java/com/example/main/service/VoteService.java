@@ -1,16 +1,34 @@
 package com.example.main.service;
 
+import com.example.main.dto.VoteBatchResultDto;
 import com.example.main.dto.VoteDto;
+import com.example.main.dto.VoteStateDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
 import com.example.main.model.Answer;
 import com.example.main.model.Question;
 import com.example.main.model.User;
 import com.example.main.model.Vote;
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.UserRepository;
 import com.example.main.repository.VoteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,12 +46,32 @@ public class VoteService {
     @Autowired
     private AnswerService answerService;
     
-    // Score constants
-    private static final float QUESTION_UPVOTE_SCORE = 2.5f;
-    private static final float QUESTION_DOWNVOTE_SCORE = -1.5f;
-    private static final float ANSWER_UPVOTE_SCORE = 5.0f;
-    private static final float ANSWER_DOWNVOTE_SCORE = -2.5f;
-    private static final float DOWNVOTE_PENALTY = -1.5f;
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private QuestionRepository questionRepository;
+    
+    @Autowired
+    private AnswerRepository answerRepository;
+    
+    @Autowired
+    private ScoreService scoreService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${stackunderflow.votes.batch-max-size:500}")
+    private int maxBatchSize;
+    
+    // Score constants, also used by the dataset generator
+    public static final BigDecimal QUESTION_UPVOTE_SCORE = new BigDecimal("2.5");
+    public static final BigDecimal QUESTION_DOWNVOTE_SCORE = new BigDecimal("-1.5");
+    public static final BigDecimal ANSWER_UPVOTE_SCORE = new BigDecimal("5.0");
+    public static final BigDecimal ANSWER_DOWNVOTE_SCORE = new BigDecimal("-2.5");
+    public static final BigDecimal DOWNVOTE_PENALTY = new BigDecimal("-1.5");
+    
+    public static final int MAX_VOTE_STATE_IDS = 200;
     
     public List<VoteDto> getAllVotes() {
         return voteRepository.findAll().stream()
@@ -56,6 +94,27 @@ public class VoteService {
                 .collect(Collectors.toList());
     }
     
+    // The viewer's vote on each of the given questions and answers (posts without one are left out),
+    // so list pages do not need the user's whole voting history
+    public VoteStateDto getVoteState(Long userId, Collection<Long> questionIds, Collection<Long> answerIds) {
+        if (questionIds.size() + answerIds.size() > MAX_VOTE_STATE_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_VOTE_STATE_IDS + " ids per lookup");
+        }
+        VoteStateDto state = new VoteStateDto();
+        if (!questionIds.isEmpty()) {
+            for (VoteRepository.TargetVoteRow row : voteRepository.findQuestionVoteTypes(userId, questionIds)) {
+                state.getQuestions().put(row.getTargetId(), row.getVoteType());
+            }
+        }
+        if (!answerIds.isEmpty()) {
+            for (VoteRepository.TargetVoteRow row : voteRepository.findAnswerVoteTypes(userId, answerIds)) {
+                state.getAnswers().put(row.getTargetId(), row.getVoteType());
+            }
+        }
+        return state;
+    }
+    
+    @Transactional
     public VoteDto voteOnQuestion(Long userId, Long questionId, String voteType) {
         User user = userService.findUserEntityById(userId);
         Question question = questionService.findQuestionEntityById(questionId);
@@ -70,59 +129,21 @@ public class VoteService {
         }
         
         // Check if user already voted on this question
-        Optional<Vote> existingVote = voteRepository.findByUserAndQuestion(user, question);
-        
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            // If same vote type, remove the vote (toggle)
-            if (vote.getVoteType().equals(voteType)) {
-                // Revert score changes
-                if ("upvote".equals(voteType)) {
-                    userService.updateScore(question.getAuthor().getUserId(), -QUESTION_UPVOTE_SCORE);
-                } else {
-                    userService.updateScore(question.getAuthor().getUserId(), -QUESTION_DOWNVOTE_SCORE);
-                    userService.updateScore(userId, -DOWNVOTE_PENALTY); // Refund the downvote penalty
-                }
-                
-                voteRepository.delete(vote);
-                return null;
-            } else {
-                // Change vote type - need to update scores accordingly
-                String oldVoteType = vote.getVoteType();
-                vote.setVoteType(voteType);
-                
-                // Update author's score
-                if ("upvote".equals(oldVoteType) && "downvote".equals(voteType)) {
-                    // Changed from upvote to downvote
-                    userService.updateScore(question.getAuthor().getUserId(), -QUESTION_UPVOTE_SCORE + QUESTION_DOWNVOTE_SCORE);
-                    userService.updateScore(userId, DOWNVOTE_PENALTY); // Apply downvote penalty
-                } else {
-                    // Changed from downvote to upvote
-                    userService.updateScore(question.getAuthor().getUserId(), -QUESTION_DOWNVOTE_SCORE + QUESTION_UPVOTE_SCORE);
-                    userService.updateScore(userId, -DOWNVOTE_PENALTY); // Refund the downvote penalty
-                }
-                
-                return convertToDto(voteRepository.save(vote));
-            }
-        } else {
-            // Create new vote
-            Vote vote = new Vote();
+        Vote vote = voteRepository.findByUserAndQuestion(user, question).orElse(null);
+        if (vote == null) {
+            vote = new Vote();
             vote.setUser(user);
             vote.setQuestion(question);
-            vote.setVoteType(voteType);
-            
-            // Update scores
-            if ("upvote".equals(voteType)) {
-                userService.updateScore(question.getAuthor().getUserId(), QUESTION_UPVOTE_SCORE);
-            } else {
-                userService.updateScore(question.getAuthor().getUserId(), QUESTION_DOWNVOTE_SCORE);
-                userService.updateScore(userId, DOWNVOTE_PENALTY); // Apply downvote penalty
-            }
-            
-            return convertToDto(voteRepository.save(vote));
         }
+        String oldVoteType = vote.getVoteType();
+        String newVoteType = applyToggle(vote, voteType, question.getAuthor().getUserId(),
+                QUESTION_UPVOTE_SCORE, QUESTION_DOWNVOTE_SCORE);
+        adjustQuestionVoteCounts(questionId, upvotes(newVoteType) - upvotes(oldVoteType),
+                downvotes(newVoteType) - downvotes(oldVoteType));
+        return newVoteType == null ? null : convertToDto(vote);
     }
     
+    @Transactional
     public VoteDto voteOnAnswer(Long userId, Long answerId, String voteType) {
         User user = userService.findUserEntityById(userId);
         Answer answer = answerService.findAnswerEntityById(answerId);
@@ -137,79 +158,163 @@ public class VoteService {
         }
         
         // Check if user already voted on this answer
-        Optional<Vote> existingVote = voteRepository.findByUserAndAnswer(user, answer);
+        Vote vote = voteRepository.findByUserAndAnswer(user, answer).orElse(null);
+        if (vote == null) {
+            vote = new Vote();
+            vote.setUser(user);
+            vote.setAnswer(answer);
+        }
+        String oldVoteType = vote.getVoteType();
+        String newVoteType = applyToggle(vote, voteType, answer.getAuthor().getUserId(),
+                ANSWER_UPVOTE_SCORE, ANSWER_DOWNVOTE_SCORE);
+        adjustAnswerVoteCounts(answer, upvotes(newVoteType) - upvotes(oldVoteType),
+                downvotes(newVoteType) - downvotes(oldVoteType));
+        return newVoteType == null ? null : convertToDto(vote);
+    }
+    
+    // Replays many question and answer votes of one user in one transaction, in order, with the same
+    // toggle rules as single votes. Items naming another user are rejected. Users, targets and existing
+    // votes are loaded with one query each instead of per item; vote counts, events and score changes
+    // are applied once per target and user.
+    @Transactional
+    public List<VoteBatchResultDto> voteBatch(Long callerId, List<VoteDto> items) {
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " votes per batch");
+        }
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> questionIds = new HashSet<>();
+        Set<Long> answerIds = new HashSet<>();
+        for (VoteDto item : items) {
+            if (callerId.equals(item.getUserId())) {
+                userIds.add(item.getUserId());
+            }
+            if (item.getQuestionId() != null) {
+                questionIds.add(item.getQuestionId());
+            }
+            if (item.getAnswerId() != null) {
+                answerIds.add(item.getAnswerId());
+            }
+        }
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getUserId(), user));
+        Map<Long, Question> questions = new HashMap<>();
+        questionRepository.findAllById(questionIds).forEach(question -> questions.put(question.getQuestionId(), question));
+        Map<Long, Answer> answers = new HashMap<>();
+        answerRepository.findAllById(answerIds).forEach(answer -> answers.put(answer.getAnswerId(), answer));
+        
+        // Current vote per user and target; a null value means no vote. The queries cover every
+        // user/target pair of the batch, which is a superset of the pairs actually voted on.
+        Map<List<Long>, Vote> questionVotes = new HashMap<>();
+        Map<List<Long>, Vote> answerVotes = new HashMap<>();
+        if (!users.isEmpty() && !questions.isEmpty()) {
+            for (Vote vote : voteRepository.findQuestionVotes(users.keySet(), questions.keySet())) {
+                questionVotes.put(List.of(vote.getUser().getUserId(), vote.getQuestion().getQuestionId()), vote);
+            }
+        }
+        if (!users.isEmpty() && !answers.isEmpty()) {
+            for (Vote vote : voteRepository.findAnswerVotes(users.keySet(), answers.keySet())) {
+                answerVotes.put(List.of(vote.getUser().getUserId(), vote.getAnswer().getAnswerId()), vote);
+            }
+        }
         
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            // If same vote type, remove the vote (toggle)
-            if (vote.getVoteType().equals(voteType)) {
-                // Revert score changes
-                if ("upvote".equals(voteType)) {
-                    userService.updateScore(answer.getAuthor().getUserId(), -ANSWER_UPVOTE_SCORE);
-                } else {
-                    userService.updateScore(answer.getAuthor().getUserId(), -ANSWER_DOWNVOTE_SCORE);
-                    userService.updateScore(userId, -DOWNVOTE_PENALTY); // Refund the downvote penalty
+        // Sorted, so concurrent batches take the count row locks in the same order
+        Map<Long, int[]> questionCounts = new TreeMap<>();
+        Map<Long, int[]> answerCounts = new TreeMap<>();
+        List<VoteBatchResultDto> results = new ArrayList<>(items.size());
+        for (VoteDto item : items) {
+            if (!callerId.equals(item.getUserId())) {
+                results.add(VoteBatchResultDto.rejected("Votes can only be cast as the calling user"));
+                continue;
+            }
+            User user = users.get(item.getUserId());
+            String voteType = item.getVoteType();
+            boolean onQuestion = item.getQuestionId() != null;
+            if (user == null || onQuestion == (item.getAnswerId() != null)
+                    || !("upvote".equals(voteType) || "downvote".equals(voteType))) {
+                results.add(VoteBatchResultDto.rejected("Needs a known user, one target and a vote type"));
+                continue;
+            }
+            
+            Vote vote;
+            Long authorId;
+            Map<List<Long>, Vote> currentVotes;
+            List<Long> key;
+            if (onQuestion) {
+                Question question = questions.get(item.getQuestionId());
+                if (question == null) {
+                    results.add(VoteBatchResultDto.rejected("Question not found"));
+                    continue;
+                }
+                authorId = question.getAuthor().getUserId();
+                currentVotes = questionVotes;
+                key = List.of(user.getUserId(), question.getQuestionId());
+                vote = questionVotes.get(key);
+                if (vote == null) {
+                    vote = new Vote();
+                    vote.setUser(user);
+                    vote.setQuestion(question);
                 }
-                
-                voteRepository.delete(vote);
-                return null;
             } else {
-                // Change vote type - need to update scores accordingly
-                String oldVoteType = vote.getVoteType();
-                vote.setVoteType(voteType);
-                
-                // Update author's score
-                if ("upvote".equals(oldVoteType) && "downvote".equals(voteType)) {
-                    // Changed from upvote to downvote
-                    userService.updateScore(answer.getAuthor().getUserId(), -ANSWER_UPVOTE_SCORE + ANSWER_DOWNVOTE_SCORE);
-                    userService.updateScore(userId, DOWNVOTE_PENALTY); // Apply downvote penalty
-                } else {
-                    // Changed from downvote to upvote
-                    userService.updateScore(answer.getAuthor().getUserId(), -ANSWER_DOWNVOTE_SCORE + ANSWER_UPVOTE_SCORE);
-                    userService.updateScore(userId, -DOWNVOTE_PENALTY); // Refund the downvote penalty
+                Answer answer = answers.get(item.getAnswerId());
+                if (answer == null) {
+                    results.add(VoteBatchResultDto.rejected("Answer not found"));
+                    continue;
+                }
+                authorId = answer.getAuthor().getUserId();
+                currentVotes = answerVotes;
+                key = List.of(user.getUserId(), answer.getAnswerId());
+                vote = answerVotes.get(key);
+                if (vote == null) {
+                    vote = new Vote();
+                    vote.setUser(user);
+                    vote.setAnswer(answer);
                 }
-                
-                return convertToDto(voteRepository.save(vote));
             }
-        } else {
-            // Create new vote
-            Vote vote = new Vote();
-            vote.setUser(user);
-            vote.setAnswer(answer);
-            vote.setVoteType(voteType);
+            if (authorId.equals(user.getUserId())) {
+                results.add(VoteBatchResultDto.rejected("Users cannot vote on their own posts"));
+                continue;
+            }
             
-            // Update scores
-            if ("upvote".equals(voteType)) {
-                userService.updateScore(answer.getAuthor().getUserId(), ANSWER_UPVOTE_SCORE);
+            String oldVoteType = vote.getVoteType();
+            String newVoteType = onQuestion
+                    ? applyToggle(vote, voteType, authorId, QUESTION_UPVOTE_SCORE, QUESTION_DOWNVOTE_SCORE)
+                    : applyToggle(vote, voteType, authorId, ANSWER_UPVOTE_SCORE, ANSWER_DOWNVOTE_SCORE);
+            int[] counts = onQuestion
+                    ? questionCounts.computeIfAbsent(vote.getQuestion().getQuestionId(), id -> new int[2])
+                    : answerCounts.computeIfAbsent(vote.getAnswer().getAnswerId(), id -> new int[2]);
+            counts[0] += upvotes(newVoteType) - upvotes(oldVoteType);
+            counts[1] += downvotes(newVoteType) - downvotes(oldVoteType);
+            
+            if (newVoteType == null) {
+                currentVotes.remove(key);
+                results.add(VoteBatchResultDto.removed());
             } else {
-                userService.updateScore(answer.getAuthor().getUserId(), ANSWER_DOWNVOTE_SCORE);
-                userService.updateScore(userId, DOWNVOTE_PENALTY); // Apply downvote penalty
+                currentVotes.put(key, vote);
+                results.add(VoteBatchResultDto.voted(convertToDto(vote)));
             }
-            
-            return convertToDto(voteRepository.save(vote));
         }
+        
+        questionCounts.forEach((questionId, counts) -> adjustQuestionVoteCounts(questionId, counts[0], counts[1]));
+        answerCounts.forEach((answerId, counts) -> adjustAnswerVoteCounts(answers.get(answerId), counts[0], counts[1]));
+        return results;
     }
     
+    @Transactional
     public boolean deleteVote(Long id) {
         Optional<Vote> voteOpt = voteRepository.findById(id);
         if (voteOpt.isPresent()) {
             Vote vote = voteOpt.get();
+            String voteType = vote.getVoteType();
             
             // Revert score changes
             if (vote.getQuestion() != null) {
-                if ("upvote".equals(vote.getVoteType())) {
-                    userService.updateScore(vote.getQuestion().getAuthor().getUserId(), -QUESTION_UPVOTE_SCORE);
-                } else {
-                    userService.updateScore(vote.getQuestion().getAuthor().getUserId(), -QUESTION_DOWNVOTE_SCORE);
-                    userService.updateScore(vote.getUser().getUserId(), -DOWNVOTE_PENALTY); // Refund the downvote penalty
-                }
+                applyScoreChange(vote.getUser().getUserId(), vote.getQuestion().getAuthor().getUserId(), voteType, null,
+                        QUESTION_UPVOTE_SCORE, QUESTION_DOWNVOTE_SCORE);
+                adjustQuestionVoteCounts(vote.getQuestion().getQuestionId(), -upvotes(voteType), -downvotes(voteType));
             } else if (vote.getAnswer() != null) {
-                if ("upvote".equals(vote.getVoteType())) {
-                    userService.updateScore(vote.getAnswer().getAuthor().getUserId(), -ANSWER_UPVOTE_SCORE);
-                } else {
-                    userService.updateScore(vote.getAnswer().getAuthor().getUserId(), -ANSWER_DOWNVOTE_SCORE);
-                    userService.updateScore(vote.getUser().getUserId(), -DOWNVOTE_PENALTY); // Refund the downvote penalty
-                }
+                applyScoreChange(vote.getUser().getUserId(), vote.getAnswer().getAuthor().getUserId(), voteType, null,
+                        ANSWER_UPVOTE_SCORE, ANSWER_DOWNVOTE_SCORE);
+                adjustAnswerVoteCounts(vote.getAnswer(), -upvotes(voteType), -downvotes(voteType));
             }
             
             voteRepository.deleteById(id);
@@ -218,6 +323,71 @@ public class VoteService {
         return false;
     }
     
+    // The toggle rules shared by single and batch votes: voting the same type again removes the
+    // vote, the other type flips it, and a new vote is saved. Returns the vote type afterwards, null
+    // when the vote was removed. Vote counts are left to the caller.
+    private String applyToggle(Vote vote, String voteType, Long authorId, BigDecimal upvoteScore, BigDecimal downvoteScore) {
+        String oldVoteType = vote.getVoteType();
+        String newVoteType = voteType.equals(oldVoteType) ? null : voteType;
+        applyScoreChange(vote.getUser().getUserId(), authorId, oldVoteType, newVoteType, upvoteScore, downvoteScore);
+        
+        if (newVoteType == null) {
+            voteRepository.delete(vote);
+        } else {
+            vote.setVoteType(newVoteType);
+            voteRepository.save(vote);
+        }
+        return newVoteType;
+    }
+    
+    // Moves the author's score from what the old vote gave to what the new one gives, and charges or
+    // refunds the voter's downvote penalty. A null type means no vote.
+    private void applyScoreChange(Long voterId, Long authorId, String oldVoteType, String newVoteType,
+                                  BigDecimal upvoteScore, BigDecimal downvoteScore) {
+        BigDecimal authorDelta = voteScore(newVoteType, upvoteScore, downvoteScore)
+                .subtract(voteScore(oldVoteType, upvoteScore, downvoteScore));
+        if (authorDelta.signum() != 0) {
+            scoreService.addScore(authorId, authorDelta);
+        }
+        BigDecimal voterDelta = DOWNVOTE_PENALTY.multiply(BigDecimal.valueOf(downvotes(newVoteType) - downvotes(oldVoteType)));
+        if (voterDelta.signum() != 0) {
+            scoreService.addScore(voterId, voterDelta);
+        }
+    }
+    
+    private static BigDecimal voteScore(String voteType, BigDecimal upvoteScore, BigDecimal downvoteScore) {
+        if (voteType == null) {
+            return BigDecimal.ZERO;
+        }
+        return "upvote".equals(voteType) ? upvoteScore : downvoteScore;
+    }
+    
+    private static int upvotes(String voteType) {
+        return "upvote".equals(voteType) ? 1 : 0;
+    }
+    
+    // Anything but an upvote has always counted as a downvote
+    private static int downvotes(String voteType) {
+        return voteType != null && !"upvote".equals(voteType) ? 1 : 0;
+    }
+    
+    private void adjustQuestionVoteCounts(Long questionId, int upvotes, int downvotes) {
+        if (upvotes == 0 && downvotes == 0) {
+            return;
+        }
+        questionRepository.adjustVoteCounts(questionId, upvotes, downvotes);
+        eventPublisher.publishEvent(new QuestionChangedEvent(questionId, Change.VOTES));
+    }
+    
+    private void adjustAnswerVoteCounts(Answer answer, int upvotes, int downvotes) {
+        if (upvotes == 0 && downvotes == 0) {
+            return;
+        }
+        answerRepository.adjustVoteCounts(answer.getAnswerId(), upvotes, downvotes);
+        eventPublisher.publishEvent(new QuestionChangedEvent(answer.getQuestion().getQuestionId(), Change.ANSWER_VOTES,
+                answer.getAnswerId()));
+    }
+    
     private VoteDto convertToDto(Vote vote) {
         VoteDto dto = new VoteDto();
         dto.setVoteId(vote.getVoteId());
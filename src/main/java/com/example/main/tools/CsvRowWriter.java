@@ -0,0 +1,92 @@
+package com.example.main.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Rows of one table as a CSV file in the format MySQL's LOAD DATA reads with
+//   FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' ESCAPED BY '\\'
+// Strings are quoted with backslash escapes, null is \N and booleans are 0/1.
+final class CsvRowWriter extends RowWriter {
+    
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private final BufferedWriter out;
+    private final StringBuilder line = new StringBuilder();
+    
+    CsvRowWriter(String table, Path file) {
+        super(table);
+        try {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    protected void write(Object[] row) {
+        line.setLength(0);
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendValue(row[i]);
+        }
+        line.append('\n');
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    void finish() {
+        super.finish();
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void appendValue(Object value) {
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof Boolean flag) {
+            line.append(flag ? '1' : '0');
+        } else if (value instanceof LocalDateTime dateTime) {
+            DATE_TIME.formatTo(dateTime, line);
+        } else if (value instanceof String text) {
+            line.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"', '\\' -> line.append('\\').append(c);
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\t' -> line.append("\\t");
+                    case '\0' -> line.append("\\0");
+                    default -> line.append(c);
+                }
+            }
+            line.append('"');
+        } else {
+            line.append(value);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,460 @@
+package com.example.main.tools;
+
+import com.example.main.config.IdSequenceInitializer;
+import com.example.main.service.QuestionSearchService;
+import com.example.main.service.VoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// Generates a synthetic dataset for scale tests. The same seed and sizes always give the same rows.
+// Tag popularity, user activity and words follow Zipf distributions, votes per post a power law, and
+// questions arrive in bursts. The corpus spans the given number of days up to an end date (today unless
+// set), so the week and month leaderboards see recent activity; pin the end date for identical rows
+// across days. Rows go into an empty database as JDBC batches, or with
+// stackunderflow.generate.output set, into CSV files and a load.sql for MySQL's LOAD DATA.
+// Started with: java -jar stackunderflow.jar generate --stackunderflow.generate.questions=1000000
+@Component
+@ConditionalOnProperty(name = "stackunderflow.generate.enabled", havingValue = "true")
+public class DatasetGenerator implements ApplicationRunner {
+    
+    private static final String[] SYLLABLES = syllables("bdfgklmnprstvz", "aeiou");
+    private static final int VOCABULARY_SIZE = 20000;
+    private static final int MAX_TAGS_PER_QUESTION = 5;
+    private static final double VOTE_TAIL = 1.6;  // Pareto shape of the votes per post
+    private static final double ACCEPT_RATE = 0.6;
+    private static final double QUESTION_DOWNVOTE_RATE = 0.08;
+    private static final double ANSWER_DOWNVOTE_RATE = 0.05;
+    private static final double ANSWER_DELAY_SECONDS = 6 * 3600;
+    private static final double VOTE_DELAY_SECONDS = 2 * 24 * 3600;
+    
+    // Vote scores in hundredths, the scale of users.score
+    private static final long QUESTION_UPVOTE_CENTS = cents(VoteService.QUESTION_UPVOTE_SCORE);
+    private static final long QUESTION_DOWNVOTE_CENTS = cents(VoteService.QUESTION_DOWNVOTE_SCORE);
+    private static final long ANSWER_UPVOTE_CENTS = cents(VoteService.ANSWER_UPVOTE_SCORE);
+    private static final long ANSWER_DOWNVOTE_CENTS = cents(VoteService.ANSWER_DOWNVOTE_SCORE);
+    private static final long DOWNVOTE_PENALTY_CENTS = cents(VoteService.DOWNVOTE_PENALTY);
+    private static final String GENERATED_FLUSH_ID = "generated";
+    
+    // Questions switch between a normal and a burst regime where they arrive ten times as fast
+    private static final double BURST_ENTER = 0.001;
+    private static final double BURST_LEAVE = 0.01;
+    private static final double BURST_GAP = 0.1;
+    private static final double BURST_SHARE = BURST_ENTER / (BURST_ENTER + BURST_LEAVE);
+    private static final double MEAN_GAP_FACTOR = 1 - BURST_SHARE + BURST_SHARE * BURST_GAP;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private IdSequenceInitializer idSequenceInitializer;
+    
+    @Autowired
+    private QuestionSearchService questionSearchService;
+    
+    @Autowired
+    private ConfigurableApplicationContext context;
+    
+    @Value("${stackunderflow.generate.seed:42}")
+    private long seed;
+    
+    @Value("${stackunderflow.generate.users:10000}")
+    private int users;
+    
+    @Value("${stackunderflow.generate.questions:50000}")
+    private long questions;
+    
+    @Value("${stackunderflow.generate.answers-per-question:1.5}")
+    private double answersPerQuestion;
+    
+    @Value("${stackunderflow.generate.votes:500000}")
+    private long votes;
+    
+    @Value("${stackunderflow.generate.tags:2000}")
+    private int tags;
+    
+    @Value("${stackunderflow.generate.tag-skew:1.1}")
+    private double tagSkew;
+    
+    @Value("${stackunderflow.generate.user-skew:1.0}")
+    private double userSkew;
+    
+    @Value("${stackunderflow.generate.days:1095}")
+    private int days;
+    
+    @Value("${stackunderflow.generate.end-date:}")
+    private String endDate;
+    
+    @Value("${stackunderflow.generate.output:}")
+    private String output;
+    
+    @Value("${stackunderflow.generate.batch-size:5000}")
+    private int batchSize;
+    
+    // CSV mode: table -> column list, in load order
+    private final Map<String, String> csvTables = new LinkedHashMap<>();
+    
+    // Each user's score in hundredths, indexed by user id, as the generated votes add up
+    private long[] scores;
+    private RowWriter voteRows;
+    private RowWriter ledgerRows;
+    private long nextVoteId = 1;
+    private long nextEntryId = 1;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        try {
+            if (users < 2) {
+                System.err.println("The generator needs at least two users");
+                return;
+            }
+            if (output.isEmpty()) {
+                Long existing = jdbcTemplate.queryForObject(
+                        "SELECT (SELECT COUNT(*) FROM users) + (SELECT COUNT(*) FROM questions)", Long.class);
+                if (existing != null && existing > 0) {
+                    System.err.println("Generating into the database needs it empty; found existing users or questions");
+                    return;
+                }
+                generate();
+                // Ids were written directly, so move the pooled counters past them
+                idSequenceInitializer.alignSequences();
+                questionSearchService.rebuildNow();
+            } else {
+                Files.createDirectories(Paths.get(output));
+                generate();
+                writeLoadScript();
+            }
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+    
+    private void generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        int tagCount = Math.max(tags, MAX_TAGS_PER_QUESTION);
+        Zipf tagPopularity = new Zipf(tagCount, tagSkew);
+        Zipf userActivity = new Zipf(users, userSkew);
+        Zipf vocabulary = new Zipf(VOCABULARY_SIZE, 1.0);
+        long userStride = coprimeStride(users);
+        long spanSeconds = days * 24L * 3600;
+        end = (endDate.isEmpty() ? LocalDate.now() : LocalDate.parse(endDate)).plusDays(1).atStartOfDay();
+        start = end.minusSeconds(spanSeconds);
+        
+        // Scores are only known once the votes are drawn. The database needs users before anything
+        // that references them, so they go in first and get their scores at the end; CSV files load
+        // without foreign key checks, so there the users are written last.
+        scores = new long[users + 1];
+        long[] userAges = new long[users + 1];
+        for (int id = 1; id <= users; id++) {
+            userAges[id] = random.nextLong(spanSeconds);
+        }
+        RowWriter userRows = writer("users", "user_id, username, email, password_hash, score, is_banned, is_moderator, created_at");
+        if (output.isEmpty()) {
+            writeUsers(userRows, userAges);
+        }
+        
+        // Tag 1 is the most popular; popular tags get the shortest names
+        RowWriter tagRows = writer("tags", "tag_id, name");
+        for (int i = 0; i < tagCount; i++) {
+            tagRows.add(i + 1L, word(i));
+        }
+        tagRows.finish();
+        
+        RowWriter questionRows = writer("questions", "question_id, author_id, title, text, status, accepted_answer_id, " +
+                "created_at, last_modified, upvote_count, downvote_count");
+        RowWriter questionTagRows = writer("question_tags", "question_id, tag_id", questionRows);
+        RowWriter answerRows = writer("answers", "answer_id, question_id, author_id, text, created_at, " +
+                "upvote_count, downvote_count", questionRows);
+        voteRows = writer("votes", "vote_id, user_id, question_id, answer_id, vote_type, created_at",
+                questionRows, answerRows);
+        ledgerRows = writer("reputation_ledger", "entry_id, user_id, delta, created_at, flush_id");
+        
+        // Lomax (Pareto starting at 0) scale that gives the requested mean number of votes per post
+        double meanVotes = votes / (questions * (1 + answersPerQuestion));
+        double voteScale = (meanVotes + 0.5) * (VOTE_TAIL - 1);
+        double meanGap = (double) spanSeconds / questions / MEAN_GAP_FACTOR;
+        
+        long answerId = 1;
+        long[] votesLeft = {votes};
+        double clock = 0;
+        boolean burst = false;
+        for (long questionId = 1; questionId <= questions; questionId++) {
+            if (random.nextDouble() < (burst ? BURST_LEAVE : BURST_ENTER)) {
+                burst = !burst;
+            }
+            clock += exponential(random, burst ? meanGap * BURST_GAP : meanGap);
+            LocalDateTime createdAt = beforeEnd(start.plusSeconds((long) clock));
+            long authorId = userId(userActivity.sample(random), userStride);
+            int answerCount = geometric(random, answersPerQuestion);
+            Long acceptedAnswerId = answerCount > 0 && random.nextDouble() < ACCEPT_RATE ? answerId : null;
+            String status = acceptedAnswerId != null ? "solved" : answerCount > 0 ? "in progress" : "received";
+            
+            // Counters are known up front, so no repair pass is needed afterwards
+            long[] voters = pickVoters(random, authorId, voteScale, votesLeft);
+            int downvotes = binomial(random, voters.length, QUESTION_DOWNVOTE_RATE);
+            questionRows.add(questionId, authorId, sentence(random, vocabulary, 5, 12) + "?",
+                    text(random, vocabulary), status, acceptedAnswerId, createdAt, createdAt,
+                    voters.length - downvotes, downvotes);
+            
+            Set<Integer> questionTags = new LinkedHashSet<>();
+            int wanted = 1 + random.nextInt(MAX_TAGS_PER_QUESTION);
+            for (int attempt = 0; attempt < 4 * MAX_TAGS_PER_QUESTION && questionTags.size() < wanted; attempt++) {
+                questionTags.add(tagPopularity.sample(random) + 1);
+            }
+            for (int tagId : questionTags) {
+                questionTagRows.add(questionId, (long) tagId);
+            }
+            addVotes(random, authorId, voters, downvotes, questionId, null, createdAt,
+                    QUESTION_UPVOTE_CENTS, QUESTION_DOWNVOTE_CENTS);
+            
+            for (int i = 0; i < answerCount; i++) {
+                LocalDateTime answeredAt = beforeEnd(createdAt.plusSeconds((long) exponential(random, ANSWER_DELAY_SECONDS)));
+                long answerAuthorId = userId(userActivity.sample(random), userStride);
+                long[] answerVoters = pickVoters(random, answerAuthorId, voteScale, votesLeft);
+                int answerDownvotes = binomial(random, answerVoters.length, ANSWER_DOWNVOTE_RATE);
+                answerRows.add(answerId, questionId, answerAuthorId, text(random, vocabulary), answeredAt,
+                        answerVoters.length - answerDownvotes, answerDownvotes);
+                addVotes(random, answerAuthorId, answerVoters, answerDownvotes, null, answerId, answeredAt,
+                        ANSWER_UPVOTE_CENTS, ANSWER_DOWNVOTE_CENTS);
+                answerId++;
+            }
+        }
+        questionRows.finish();
+        questionTagRows.finish();
+        answerRows.finish();
+        voteRows.finish();
+        ledgerRows.finish();
+        
+        if (output.isEmpty()) {
+            updateScores();
+        } else {
+            writeUsers(userRows, userAges);
+        }
+    }
+    
+    private void writeUsers(RowWriter userRows, long[] userAges) {
+        for (int id = 1; id <= users; id++) {
+            // The password can never match
+            userRows.add((long) id, "user" + id, "user" + id + "@generated.invalid", "!", BigDecimal.valueOf(scores[id], 2),
+                    false, false, start.minusSeconds(userAges[id]));
+        }
+        userRows.finish();
+    }
+    
+    private void updateScores() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int id = 1; id <= users; id++) {
+            if (scores[id] != 0) {
+                rows.add(new Object[] {BigDecimal.valueOf(scores[id], 2), (long) id});
+            }
+            if (rows.size() == batchSize || id == users && !rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE users SET score = ? WHERE user_id = ?", rows);
+                rows.clear();
+            }
+        }
+    }
+    
+    // The first downvotes voters vote down, the rest up. Each vote gets what VoteService would have
+    // done for it: the author gets the vote's score and a downvoter pays the penalty, both as ledger
+    // entries dated like the vote and added to the running scores.
+    private void addVotes(SplittableRandom random, long authorId, long[] voters, int downvotes, Long questionId,
+                          Long answerId, LocalDateTime postedAt, long upvoteCents, long downvoteCents) {
+        for (int i = 0; i < voters.length; i++) {
+            boolean downvote = i < downvotes;
+            LocalDateTime votedAt = beforeEnd(postedAt.plusSeconds((long) exponential(random, VOTE_DELAY_SECONDS)));
+            voteRows.add(nextVoteId++, voters[i], questionId, answerId, downvote ? "downvote" : "upvote", votedAt);
+            addLedgerEntry(authorId, downvote ? downvoteCents : upvoteCents, votedAt);
+            if (downvote) {
+                addLedgerEntry(voters[i], DOWNVOTE_PENALTY_CENTS, votedAt);
+            }
+        }
+    }
+    
+    // Already counted in users.score, so the flush and replay leave these alone
+    private void addLedgerEntry(long userId, long cents, LocalDateTime createdAt) {
+        scores[(int) userId] += cents;
+        ledgerRows.add(nextEntryId++, userId, BigDecimal.valueOf(cents, 2), createdAt, GENERATED_FLUSH_ID);
+    }
+    
+    // Delays are drawn from unbounded distributions; nothing is dated after the end of the corpus
+    private LocalDateTime beforeEnd(LocalDateTime time) {
+        return time.isBefore(end) ? time : end.minusSeconds(1);
+    }
+    
+    // Distinct voters other than the author (Floyd's sampling), as many as a power-law draw asks for
+    // and the remaining vote budget allows
+    private long[] pickVoters(SplittableRandom random, long authorId, double voteScale, long[] votesLeft) {
+        double draw = voteScale * (Math.pow(1 - random.nextDouble(), -1 / VOTE_TAIL) - 1);
+        int count = (int) Math.min(Math.min((long) draw, users - 1L), votesLeft[0]);
+        votesLeft[0] -= count;
+        long[] voters = new long[count];
+        Set<Long> chosen = new HashSet<>();
+        int n = users - 1;
+        for (int j = n - count, i = 0; j < n; j++, i++) {
+            long candidate = random.nextLong(j + 1);
+            long pick = chosen.add(candidate) ? candidate : j;
+            chosen.add(pick);
+            long id = pick + 1;
+            voters[i] = id >= authorId ? id + 1 : id;
+        }
+        return voters;
+    }
+    
+    private RowWriter writer(String table, String columns, RowWriter... parents) {
+        if (output.isEmpty()) {
+            return new JdbcRowWriter(jdbcTemplate, batchSize, table, columns, parents);
+        }
+        csvTables.put(table, columns);
+        return new CsvRowWriter(table, Paths.get(output, table + ".csv"));
+    }
+    
+    private void writeLoadScript() throws IOException {
+        StringBuilder script = new StringBuilder("-- mysql --local-infile=1 stackunderflow < load.sql, into an empty schema;\n")
+                .append("-- id counters are aligned on the next start, then POST /api/moderator/search/rebuild\n")
+                .append("SET foreign_key_checks = 0;\n");
+        for (Map.Entry<String, String> table : csvTables.entrySet()) {
+            Path file = Paths.get(output, table.getKey() + ".csv").toAbsolutePath();
+            script.append("LOAD DATA LOCAL INFILE '").append(file.toString().replace("\\", "/").replace("'", "''"))
+                    .append("' INTO TABLE ").append(table.getKey())
+                    .append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '\\\\'")
+                    .append(" LINES TERMINATED BY '\\n' (").append(table.getValue()).append(");\n");
+        }
+        script.append("SET foreign_key_checks = 1;\n");
+        Path file = Paths.get(output, "load.sql");
+        Files.writeString(file, script, StandardCharsets.UTF_8);
+        System.out.println("Wrote " + file.toAbsolutePath());
+    }
+    
+    private static String text(SplittableRandom random, Zipf vocabulary) {
+        StringBuilder text = new StringBuilder();
+        int sentences = 2 + random.nextInt(8);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(sentence(random, vocabulary, 6, 18)).append('.');
+        }
+        return text.toString();
+    }
+    
+    private static String sentence(SplittableRandom random, Zipf vocabulary, int minWords, int maxWords) {
+        StringBuilder sentence = new StringBuilder();
+        int words = random.nextInt(minWords, maxWords + 1);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word(vocabulary.sample(random)));
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.toString();
+    }
+    
+    // Bijective base-70 numeral over two-letter syllables, so every index gives a different word
+    private static String word(int index) {
+        StringBuilder word = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / SYLLABLES.length) {
+            word.append(SYLLABLES[(n - 1) % SYLLABLES.length]);
+        }
+        return word.toString();
+    }
+    
+    private static String[] syllables(String consonants, String vowels) {
+        String[] syllables = new String[consonants.length() * vowels.length()];
+        for (int i = 0; i < syllables.length; i++) {
+            syllables[i] = "" + consonants.charAt(i / vowels.length()) + vowels.charAt(i % vowels.length());
+        }
+        return syllables;
+    }
+    
+    // Spreads activity ranks over the ids, so the busiest users are not simply the oldest ones
+    private long userId(int rank, long stride) {
+        return rank * stride % users + 1;
+    }
+    
+    private static long cents(BigDecimal score) {
+        return score.movePointRight(2).longValueExact();
+    }
+    
+    private static long coprimeStride(long n) {
+        long stride = (long) (n * 0.6180339887) | 1;
+        while (gcd(stride, n) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+    
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+    
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+    
+    private static int geometric(SplittableRandom random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(mean / (1 + mean)));
+    }
+    
+    private static int binomial(SplittableRandom random, int trials, double p) {
+        int successes = 0;
+        for (int i = 0; i < trials; i++) {
+            if (random.nextDouble() < p) {
+                successes++;
+            }
+        }
+        return successes;
+    }
+    
+    // Ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent
+    private static final class Zipf {
+        
+        private final double[] cumulative;
+        
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += Math.pow(i + 1, -exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+        
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+        }
+    }
+} 
\ No newline at end of file
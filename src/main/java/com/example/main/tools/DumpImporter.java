@@ -0,0 +1,289 @@
+package com.example.main.tools;
+
+import com.example.main.config.IdSequenceInitializer;
+import com.example.main.search.CompressedBitmap;
+import com.example.main.service.QuestionSearchService;
+import com.example.main.service.VoteCountRepairService;
+import com.example.main.service.VoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Loads a Stack Exchange data dump (Users.xml, Tags.xml, Posts.xml, Votes.xml) into an empty
+// database. Files are streamed with StAX and written with plain JDBC batches, so memory stays
+// bounded apart from the tag names, the id bitmaps used to drop rows that point at skipped ones and
+// 8 bytes per post id for picking voters.
+// Dump ids are kept. Started with: java -jar stackunderflow.jar import <dump directory>
+@Component
+@ConditionalOnProperty(name = "stackunderflow.import.dir")
+public class DumpImporter implements ApplicationRunner {
+    
+    private static final int MAX_TEXT_LENGTH = 16000;  // characters that always fit a MySQL TEXT column
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int VOTER_PROBES = 8;
+    // Marks ledger entries as already counted in users.score, so the flush and replay leave them alone
+    private static final String IMPORT_FLUSH_ID = "import";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private IdSequenceInitializer idSequenceInitializer;
+    
+    @Autowired
+    private VoteCountRepairService voteCountRepairService;
+    
+    @Autowired
+    private QuestionSearchService questionSearchService;
+    
+    @Autowired
+    private ConfigurableApplicationContext context;
+    
+    @Value("${stackunderflow.import.dir}")
+    private String dumpDir;
+    
+    @Value("${stackunderflow.import.batch-size:5000}")
+    private int batchSize;
+    
+    private final CompressedBitmap userIds = new CompressedBitmap();
+    private final CompressedBitmap questionIds = new CompressedBitmap();
+    private final CompressedBitmap answerIds = new CompressedBitmap();
+    private final Map<String, Long> tagIds = new HashMap<>();
+    private long maxUserId;
+    private PostVoters voters;
+    
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        try {
+            Long existing = jdbcTemplate.queryForObject(
+                    "SELECT (SELECT COUNT(*) FROM users) + (SELECT COUNT(*) FROM questions)", Long.class);
+            if (existing != null && existing > 0) {
+                System.err.println("Import needs an empty database; found existing users or questions");
+                return;
+            }
+            
+            Path dir = Paths.get(dumpDir);
+            importUsers(dir.resolve("Users.xml"));
+            voters = new PostVoters(userIds, maxUserId, VOTER_PROBES);
+            importTags(dir.resolve("Tags.xml"));
+            importPosts(dir.resolve("Posts.xml"));
+            importVotes(dir.resolve("Votes.xml"));
+            applyLedgerScores();
+            
+            // Ids were written directly, so move the pooled counters past them
+            idSequenceInitializer.alignSequences();
+            voteCountRepairService.repairVoteCounts();
+            questionSearchService.rebuildNow();
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+    
+    private void importUsers(Path file) throws IOException, XMLStreamException {
+        RowWriter users = writer("users", "user_id, username, email, password_hash, score, is_banned, is_moderator, created_at");
+        forEachRow(file, row -> {
+            long id = Long.parseLong(row.getAttributeValue(null, "Id"));
+            if (id <= 0) {
+                return;  // the Community bot
+            }
+            String name = row.getAttributeValue(null, "DisplayName");
+            // The dump's Reputation follows Stack Exchange's rules (bounties, accepts, ...), not this
+            // service's, so scores start at zero and are summed from the imported votes at the end.
+            // Display names are not unique, so the id is appended; the password can never match
+            users.add(id, truncate(name + "_" + id, MAX_TITLE_LENGTH), "user" + id + "@import.invalid",
+                    "!" + UUID.randomUUID(), BigDecimal.ZERO, false, false,
+                    parseDate(row.getAttributeValue(null, "CreationDate")));
+            userIds.add(id);
+            maxUserId = Math.max(maxUserId, id);
+        });
+        users.finish();
+    }
+    
+    private void importTags(Path file) throws IOException, XMLStreamException {
+        RowWriter tags = writer("tags", "tag_id, name");
+        forEachRow(file, row -> {
+            long id = Long.parseLong(row.getAttributeValue(null, "Id"));
+            String name = row.getAttributeValue(null, "TagName");
+            tags.add(id, name);
+            tagIds.put(name, id);
+        });
+        tags.finish();
+    }
+    
+    private void importPosts(Path file) throws IOException, XMLStreamException {
+        RowWriter questions = writer("questions",
+                "question_id, author_id, title, text, status, accepted_answer_id, created_at, last_modified");
+        RowWriter questionTags = writer("question_tags", "question_id, tag_id", questions);
+        RowWriter answers = writer("answers", "answer_id, question_id, author_id, text, created_at", questions);
+        long[] skipped = new long[1];
+        forEachRow(file, row -> {
+            long id = Long.parseLong(row.getAttributeValue(null, "Id"));
+            String type = row.getAttributeValue(null, "PostTypeId");
+            Long ownerId = parseId(row.getAttributeValue(null, "OwnerUserId"));
+            // Posts of deleted users have no owner here
+            if (ownerId == null || !userIds.contains(ownerId)) {
+                skipped[0]++;
+                return;
+            }
+            LocalDateTime createdAt = parseDate(row.getAttributeValue(null, "CreationDate"));
+            String body = truncate(row.getAttributeValue(null, "Body"), MAX_TEXT_LENGTH);
+            
+            if ("1".equals(type)) {
+                Long acceptedAnswerId = parseId(row.getAttributeValue(null, "AcceptedAnswerId"));
+                String answerCount = row.getAttributeValue(null, "AnswerCount");
+                String status = acceptedAnswerId != null ? "solved"
+                        : answerCount != null && !"0".equals(answerCount) ? "in progress" : "received";
+                String lastActivity = row.getAttributeValue(null, "LastActivityDate");
+                questions.add(id, ownerId, truncate(row.getAttributeValue(null, "Title"), MAX_TITLE_LENGTH), body,
+                        status, acceptedAnswerId, createdAt, lastActivity != null ? parseDate(lastActivity) : createdAt);
+                questionIds.add(id);
+                voters.addPost(id, ownerId);
+                String tags = row.getAttributeValue(null, "Tags");
+                if (tags != null) {
+                    // "<java><jpa>" in older dumps, "|java|jpa|" in newer ones
+                    for (String name : tags.split("[<>|]+")) {
+                        Long tagId = tagIds.get(name);
+                        if (tagId != null) {
+                            questionTags.add(id, tagId);
+                        }
+                    }
+                }
+            } else if ("2".equals(type)) {
+                Long questionId = parseId(row.getAttributeValue(null, "ParentId"));
+                if (questionId == null || !questionIds.contains(questionId)) {
+                    skipped[0]++;
+                    return;
+                }
+                answers.add(id, questionId, ownerId, body, createdAt);
+                answerIds.add(id);
+                voters.addPost(id, ownerId);
+            }
+        });
+        questions.finish();
+        questionTags.finish();
+        answers.finish();
+        System.out.println("Skipped " + skipped[0] + " posts without an imported owner or question");
+    }
+    
+    // Up and down votes are anonymous in the dumps, so each gets a voter picked from the imported
+    // users; the counts per post are what load tests need. Voters never repeat on a post and are
+    // never its author, as the votes table and the score rules expect. Each vote also gets the
+    // reputation ledger entries VoteService would have written, dated like the vote, so the windowed
+    // leaderboards have their history.
+    private void importVotes(Path file) throws IOException, XMLStreamException {
+        RowWriter votes = writer("votes", "vote_id, user_id, question_id, answer_id, vote_type, created_at");
+        RowWriter ledger = writer("reputation_ledger", "entry_id, user_id, delta, created_at, flush_id");
+        long[] entryId = {1};
+        forEachRow(file, row -> {
+            String type = row.getAttributeValue(null, "VoteTypeId");
+            String voteType = "2".equals(type) ? "upvote" : "3".equals(type) ? "downvote" : null;
+            Long postId = parseId(row.getAttributeValue(null, "PostId"));
+            if (voteType == null || postId == null) {
+                return;
+            }
+            boolean onQuestion = questionIds.contains(postId);
+            if (!onQuestion && !answerIds.contains(postId)) {
+                return;
+            }
+            long id = Long.parseLong(row.getAttributeValue(null, "Id"));
+            Long voterId = voters.next(postId);
+            if (voterId == null) {
+                return;
+            }
+            LocalDateTime createdAt = parseDate(row.getAttributeValue(null, "CreationDate"));
+            votes.add(id, voterId, onQuestion ? postId : null, onQuestion ? null : postId, voteType, createdAt);
+            
+            boolean downvote = "downvote".equals(voteType);
+            BigDecimal authorDelta = onQuestion
+                    ? downvote ? VoteService.QUESTION_DOWNVOTE_SCORE : VoteService.QUESTION_UPVOTE_SCORE
+                    : downvote ? VoteService.ANSWER_DOWNVOTE_SCORE : VoteService.ANSWER_UPVOTE_SCORE;
+            ledger.add(entryId[0]++, voters.authorOf(postId), authorDelta, createdAt, IMPORT_FLUSH_ID);
+            if (downvote) {
+                ledger.add(entryId[0]++, voterId, VoteService.DOWNVOTE_PENALTY, createdAt, IMPORT_FLUSH_ID);
+            }
+        });
+        votes.finish();
+        ledger.finish();
+    }
+    
+    // Sets each user's score to the sum of their ledger entries, one grouped scan for all users
+    private void applyLedgerScores() {
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("SELECT user_id, SUM(delta) FROM reputation_ledger GROUP BY user_id", (RowCallbackHandler) result -> {
+            rows.add(new Object[] {result.getBigDecimal(2), result.getLong(1)});
+            if (rows.size() == batchSize) {
+                jdbcTemplate.batchUpdate("UPDATE users SET score = ? WHERE user_id = ?", rows);
+                rows.clear();
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE users SET score = ? WHERE user_id = ?", rows);
+        }
+    }
+    
+    private RowWriter writer(String table, String columns, RowWriter... parents) {
+        return new JdbcRowWriter(jdbcTemplate, batchSize, table, columns, parents);
+    }
+    
+    private void forEachRow(Path file, Consumer<XMLStreamReader> handler) throws IOException, XMLStreamException {
+        if (!Files.exists(file)) {
+            System.out.println("Skipping missing " + file);
+            return;
+        }
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+                        handler.accept(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+    
+    private static Long parseId(String value) {
+        return value == null || value.isEmpty() ? null : Long.valueOf(value);
+    }
+    
+    private static LocalDateTime parseDate(String value) {
+        return value == null ? LocalDateTime.now() : LocalDateTime.parse(value);
+    }
+    
+    private static String truncate(String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+} 
\ No newline at end of file
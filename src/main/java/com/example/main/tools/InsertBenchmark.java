@@ -0,0 +1,106 @@
+package com.example.main.tools;
+
+import com.example.main.model.Answer;
+import com.example.main.model.Question;
+import com.example.main.model.User;
+import com.example.main.model.Vote;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Measures answer and vote insert throughput with JDBC batching off (one statement per round trip,
+// what IDENTITY ids forced) and on (the configured hibernate.jdbc.batch_size). Every run is rolled
+// back, so only id blocks are used up. Needs at least two users and one question. Run with
+//   --stackunderflow.benchmark.inserts=20000 --spring.main.web-application-type=none
+@Component
+@ConditionalOnProperty(name = "stackunderflow.benchmark.inserts")
+public class InsertBenchmark implements ApplicationRunner {
+    
+    private static final int FLUSH_EVERY = 1000;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ConfigurableApplicationContext context;
+    
+    @Value("${stackunderflow.benchmark.inserts}")
+    private int rows;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> userIds = transaction.execute(status -> entityManager
+                .createQuery("SELECT u.userId FROM User u ORDER BY u.userId", Long.class)
+                .setMaxResults(2)
+                .getResultList());
+        List<Long> questionIds = transaction.execute(status -> entityManager
+                .createQuery("SELECT q.questionId FROM Question q ORDER BY q.questionId", Long.class)
+                .setMaxResults(1)
+                .getResultList());
+        if (userIds.size() < 2 || questionIds.isEmpty()) {
+            System.out.println("Insert benchmark needs two users and a question");
+        } else {
+            measure("warm-up", transaction, batchSize, Math.min(rows, 1000), userIds, questionIds.get(0));
+            measure("unbatched", transaction, 1, rows, userIds, questionIds.get(0));
+            measure("batched", transaction, batchSize, rows, userIds, questionIds.get(0));
+        }
+        SpringApplication.exit(context);
+    }
+    
+    private void measure(String label, TransactionTemplate transaction, int jdbcBatchSize, int count, List<Long> userIds, Long questionId) {
+        transaction.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            Question question = entityManager.getReference(Question.class, questionId);
+            User author = entityManager.getReference(User.class, userIds.get(0));
+            User voter = entityManager.getReference(User.class, userIds.get(1));
+            
+            long start = System.nanoTime();
+            for (int i = 1; i <= count; i++) {
+                Answer answer = new Answer();
+                answer.setQuestion(question);
+                answer.setAuthor(author);
+                answer.setText("Benchmark answer " + i);
+                entityManager.persist(answer);
+                
+                Vote vote = new Vote();
+                vote.setUser(voter);
+                vote.setAnswer(answer);
+                vote.setVoteType("upvote");
+                entityManager.persist(vote);
+                
+                if (i % FLUSH_EVERY == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    question = entityManager.getReference(Question.class, questionId);
+                    author = entityManager.getReference(User.class, userIds.get(0));
+                    voter = entityManager.getReference(User.class, userIds.get(1));
+                }
+            }
+            entityManager.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            
+            System.out.printf("%s (jdbc batch size %d): %d rows in %.2f s, %.0f rows/s%n",
+                    label, jdbcBatchSize, count * 2, seconds, count * 2 / seconds);
+            status.setRollbackOnly();
+        });
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.main.tools;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Rows for one INSERT, sent as a JDBC batch whenever batchSize of them have been collected. Rows that
+// reference another writer's rows (answers of questions, votes of answers) flush that writer first,
+// so foreign keys always resolve.
+final class JdbcRowWriter extends RowWriter {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final String sql;
+    private final List<RowWriter> parents;
+    private final List<Object[]> rows = new ArrayList<>();
+    
+    JdbcRowWriter(JdbcTemplate jdbcTemplate, int batchSize, String table, String columns, RowWriter... parents) {
+        super(table);
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.sql = "INSERT INTO " + table + " (" + columns + ") VALUES (" +
+                String.join(", ", Collections.nCopies(columns.split(",").length, "?")) + ")";
+        this.parents = List.of(parents);
+    }
+    
+    @Override
+    protected void write(Object[] row) {
+        rows.add(row);
+        if (rows.size() >= batchSize) {
+            flush();
+        }
+    }
+    
+    @Override
+    void flush() {
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (RowWriter parent : parents) {
+            parent.flush();
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+        rows.clear();
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.main.tools;
+
+import com.example.main.search.CompressedBitmap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Picks voters for anonymous votes, post by post. Each post walks its own permutation of the user
+// id space, so no user is picked twice for one post, and the post's author is passed over. Per post
+// the author and the position reached are packed into one long, in pages allocated as ids come up.
+final class PostVoters {
+    
+    private static final int PAGE_BITS = 16;
+    private static final int AUTHOR_BITS = 40;
+    private static final long AUTHOR_MASK = (1L << AUTHOR_BITS) - 1;
+    private static final long MAX_POSITION = (1L << (Long.SIZE - AUTHOR_BITS)) - 1;
+    
+    private final CompressedBitmap userIds;
+    private final long maxUserId;
+    private final int probes;
+    private final Map<Long, long[]> pages = new HashMap<>();
+    
+    PostVoters(CompressedBitmap userIds, long maxUserId, int probes) {
+        if (maxUserId > AUTHOR_MASK) {
+            throw new IllegalArgumentException("User ids above " + AUTHOR_MASK + " are not supported");
+        }
+        this.userIds = userIds;
+        this.maxUserId = maxUserId;
+        this.probes = probes;
+    }
+    
+    void addPost(long postId, long authorId) {
+        pages.computeIfAbsent(postId >>> PAGE_BITS, page -> new long[1 << PAGE_BITS])[slot(postId)] = authorId;
+    }
+    
+    // Author of an added post, or 0
+    long authorOf(long postId) {
+        long[] page = pages.get(postId >>> PAGE_BITS);
+        return page == null ? 0 : page[slot(postId)] & AUTHOR_MASK;
+    }
+    
+    // Next voter for the post, or null when the probes only found missing users, the author or the
+    // end of the permutation
+    Long next(long postId) {
+        long[] page = pages.get(postId >>> PAGE_BITS);
+        if (page == null || maxUserId == 0) {
+            return null;
+        }
+        int slot = slot(postId);
+        long author = page[slot] & AUTHOR_MASK;
+        long position = page[slot] >>> AUTHOR_BITS;
+        
+        // position -> (multiplier * position + offset) mod maxUserId is a bijection while the
+        // multiplier is coprime to maxUserId
+        long seed = mix(postId);
+        long multiplier = Math.floorMod(seed, maxUserId);
+        while (gcd(multiplier, maxUserId) != 1) {
+            multiplier = (multiplier + 1) % maxUserId;
+        }
+        long offset = Math.floorMod(mix(seed), maxUserId);
+        
+        Long voter = null;
+        for (int i = 0; i < probes && position < Math.min(maxUserId, MAX_POSITION); i++) {
+            // multiplier < 2^40 and position < 2^24, so the product fits in 64 unsigned bits
+            long candidate = (Long.remainderUnsigned(multiplier * position, maxUserId) + offset) % maxUserId + 1;
+            position++;
+            if (candidate != author && userIds.contains(candidate)) {
+                voter = candidate;
+                break;
+            }
+        }
+        page[slot] = position << AUTHOR_BITS | author;
+        return voter;
+    }
+    
+    private static int slot(long postId) {
+        return (int) (postId & ((1 << PAGE_BITS) - 1));
+    }
+    
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        value += 0x9E3779B97F4A7C15L;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
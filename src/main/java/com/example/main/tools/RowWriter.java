@@ -0,0 +1,42 @@
+package com.example.main.tools;
+
+// Destination for the rows of one table during a bulk load, reporting progress in rows per second
+abstract class RowWriter {
+    
+    private static final int REPORT_EVERY = 100000;
+    
+    private final String label;
+    private final long start = System.nanoTime();
+    private long count;
+    
+    RowWriter(String label) {
+        this.label = label;
+    }
+    
+    final void add(Object... row) {
+        write(row);
+        count++;
+        if (count % REPORT_EVERY == 0) {
+            report();
+        }
+    }
+    
+    // Sends whatever is buffered
+    abstract void flush();
+    
+    void finish() {
+        flush();
+        report();
+    }
+    
+    long count() {
+        return count;
+    }
+    
+    protected abstract void write(Object[] row);
+    
+    private void report() {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %d %s in %.1f s (%.0f rows/s)%n", count, label, seconds, count / seconds);
+    }
+} 
\ No newline at end of file
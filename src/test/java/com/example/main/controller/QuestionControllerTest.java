@@ -0,0 +1,98 @@
+package com.example.main.controller;
+
+import com.example.main.dto.QuestionDto;
+import com.example.main.service.QuestionPageService;
+import com.example.main.service.QuestionPageService.SerializedPage;
+import com.example.main.service.QuestionService;
+import com.example.main.service.QuestionVersionService;
+import com.example.main.service.QuestionVersionService.VersionStamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionControllerTest {
+    
+    private final QuestionService questionService = mock(QuestionService.class);
+    private final QuestionPageService questionPageService = mock(QuestionPageService.class);
+    private final QuestionVersionService questionVersionService = mock(QuestionVersionService.class);
+    private final QuestionController controller = new QuestionController();
+    
+    private final VersionStamp stamp = new VersionStamp(3, 1_700_000_000_000L, LocalDateTime.of(2024, 1, 1, 12, 0));
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/questions/7");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "questionService", questionService);
+        ReflectionTestUtils.setField(controller, "questionPageService", questionPageService);
+        ReflectionTestUtils.setField(controller, "questionVersionService", questionVersionService);
+        ReflectionTestUtils.setField(controller, "cachedPages", true);
+        when(questionVersionService.getVersion(7L)).thenReturn(Optional.of(stamp));
+    }
+    
+    @Test
+    void matchingEtagIsAnsweredWithoutLoadingTheQuestion() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, stamp.etag("q"));
+        
+        assertNull(controller.getQuestionById(7L, new ServletWebRequest(request, response)));
+        assertEquals(304, response.getStatus());
+        verify(questionService, never()).getQuestionById(anyLong(), any());
+    }
+    
+    @Test
+    void bodyIsLoadedUnderTheStampItsEtagCameFrom() {
+        QuestionDto question = new QuestionDto();
+        when(questionService.getQuestionById(7L, stamp)).thenReturn(Optional.of(question));
+        
+        ResponseEntity<QuestionDto> result = controller.getQuestionById(7L, new ServletWebRequest(request, response));
+        assertSame(question, result.getBody());
+        assertEquals(stamp.etag("q"), response.getHeader(HttpHeaders.ETAG));
+    }
+    
+    @Test
+    void newerVersionInvalidatesTheOldEtag() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, new VersionStamp(2, stamp.epochMillis(), stamp.lastModified()).etag("q"));
+        when(questionService.getQuestionById(7L, stamp)).thenReturn(Optional.of(new QuestionDto()));
+        
+        assertEquals(200, controller.getQuestionById(7L, new ServletWebRequest(request, response)).getStatusCode().value());
+        assertEquals(stamp.etag("q"), response.getHeader(HttpHeaders.ETAG));
+    }
+    
+    @Test
+    void gzipPageHasItsOwnEtag() {
+        SerializedPage page = new SerializedPage(new byte[] {1}, new byte[] {2});
+        when(questionPageService.getSerializedQuestionPage(7L, stamp)).thenReturn(Optional.of(page));
+        // The plain page's ETag does not match the gzip representation
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, stamp.etag("p"));
+        
+        ResponseEntity<?> result = controller.getQuestionPage(7L, "gzip, deflate", new ServletWebRequest(request, response));
+        assertArrayEquals(page.gzip(), (byte[]) result.getBody());
+        assertEquals("gzip", result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(stamp.etag("pz"), response.getHeader(HttpHeaders.ETAG));
+        
+        MockHttpServletRequest repeat = new MockHttpServletRequest("GET", "/api/questions/7/page");
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        repeat.addHeader(HttpHeaders.IF_NONE_MATCH, stamp.etag("pz"));
+        assertNull(controller.getQuestionPage(7L, "gzip", new ServletWebRequest(repeat, notModified)));
+        assertEquals(304, notModified.getStatus());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.main.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest {
+    
+    @Test
+    void keepsValuesAcrossArrayAndBitmapSwitch() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Long> model = new TreeSet<>();
+        // Every 7th value of one container, so 4097 values turn the array into a bitmap
+        for (long value = 0; model.size() < 4097; value += 7) {
+            assertTrue(bitmap.add(value));
+            model.add(value);
+        }
+        assertFalse(bitmap.add(7));
+        assertMatches(model, bitmap);
+        
+        // One value out takes it back to an array, and a second one keeps it there
+        assertTrue(bitmap.remove(7));
+        assertTrue(bitmap.remove(14));
+        assertFalse(bitmap.remove(14));
+        model.remove(7L);
+        model.remove(14L);
+        assertMatches(model, bitmap);
+        
+        assertTrue(bitmap.add(14));
+        assertTrue(bitmap.add(15));
+        model.add(14L);
+        model.add(15L);
+        assertMatches(model, bitmap);
+    }
+    
+    @Test
+    void previousCrossesContainers() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(5);
+        bitmap.add(3L << 16);
+        bitmap.add((3L << 16) + 9);
+        for (long value = 5L << 16; value < (5L << 16) + 5000; value++) {
+            bitmap.add(value);
+        }
+        
+        assertEquals(-1, bitmap.previous(4));
+        assertEquals(5, bitmap.previous((3L << 16) - 1));
+        assertEquals(3L << 16, bitmap.previous((3L << 16) + 8));
+        assertEquals((3L << 16) + 9, bitmap.previous((5L << 16) - 1));
+        assertEquals((3L << 16) + 9, bitmap.previous(4L << 16));
+        assertEquals((5L << 16) + 4999, bitmap.previous(Long.MAX_VALUE >>> 1));
+        assertEquals(-1, bitmap.previous(-1));
+        
+        // Emptying a container drops it, so the walk goes straight to the one below
+        for (long value = 5L << 16; value < (5L << 16) + 5000; value++) {
+            bitmap.remove(value);
+        }
+        assertEquals((3L << 16) + 9, bitmap.previous(6L << 16));
+    }
+    
+    @Test
+    void setOperationsMatchModel() {
+        Random random = new Random(42);
+        for (int round = 0; round < 30; round++) {
+            TreeSet<Long> leftModel = new TreeSet<>();
+            TreeSet<Long> rightModel = new TreeSet<>();
+            CompressedBitmap left = randomBitmap(random, leftModel);
+            CompressedBitmap right = randomBitmap(random, rightModel);
+            
+            TreeSet<Long> and = new TreeSet<>(leftModel);
+            and.retainAll(rightModel);
+            TreeSet<Long> or = new TreeSet<>(leftModel);
+            or.addAll(rightModel);
+            TreeSet<Long> andNot = new TreeSet<>(leftModel);
+            andNot.removeAll(rightModel);
+            
+            assertMatches(and, CompressedBitmap.and(left, right));
+            assertMatches(or, CompressedBitmap.or(left, right));
+            assertMatches(andNot, CompressedBitmap.andNot(left, right));
+            // The inputs are left as they were
+            assertMatches(leftModel, left);
+            assertMatches(rightModel, right);
+        }
+    }
+    
+    // Containers ranging from a few values to nearly full, so every array/bitmap pairing comes up
+    private static CompressedBitmap randomBitmap(Random random, TreeSet<Long> model) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (long key = 0; key < 4; key++) {
+            int count = switch (random.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(100);
+                case 2 -> 3000 + random.nextInt(2000);
+                default -> 20000 + random.nextInt(40000);
+            };
+            for (int i = 0; i < count; i++) {
+                long value = (key << 16) | random.nextInt(1 << 16);
+                bitmap.add(value);
+                model.add(value);
+            }
+        }
+        return bitmap;
+    }
+    
+    private static void assertMatches(TreeSet<Long> model, CompressedBitmap bitmap) {
+        assertEquals(model.size(), bitmap.cardinality());
+        assertEquals(model.isEmpty(), bitmap.isEmpty());
+        List<Long> walked = new ArrayList<>();
+        for (long next = bitmap.previous(Long.MAX_VALUE >>> 1); next >= 0; next = bitmap.previous(next - 1)) {
+            walked.add(next);
+        }
+        assertEquals(new ArrayList<>(model.descendingSet()), walked);
+        for (Long value : model) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.main.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixTrieTest {
+    
+    @Test
+    void topKIsBestFirstAndPrefixMayEndInsideAnEdge() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("java", "java", 5);
+        trie.put("javascript", "javascript", 9);
+        trie.put("jpa", "jpa", 7);
+        trie.put("java", "java", 10);
+        
+        assertEquals(3, trie.size());
+        assertEquals(List.of("java", "javascript", "jpa"), trie.topK("j", 10));
+        assertEquals(List.of("java", "javascript"), trie.topK("jav", 2));
+        assertEquals(List.of("javascript"), trie.topK("javas", 5));
+        assertEquals(List.of(), trie.topK("jx", 5));
+        assertEquals(List.of(), trie.topK("javascripts", 5));
+    }
+    
+    @Test
+    void removeDropsLeavesAndMergesSingleChildChains() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("team", "team", 1);
+        trie.put("test", "test", 2);
+        trie.put("tester", "tester", 3);
+        assertEquals(List.of("te"), labels(root(trie)));
+        
+        // "test" keeps its node for "tester" until it has no value left, then folds into it
+        trie.remove("test");
+        Object te = children(root(trie)).get(0);
+        assertEquals(List.of("am", "ster"), labels(te));
+        assertEquals(List.of("tester", "team"), trie.topK("te", 5));
+        
+        // Removing "team" leaves "te" with one child, so the two edges become one
+        trie.remove("team");
+        assertEquals(List.of("tester"), labels(root(trie)));
+        assertEquals(List.of("tester"), trie.topK("tes", 5));
+        assertEquals(1, trie.size());
+        
+        trie.remove("tes");
+        trie.remove("nothing");
+        assertEquals(1, trie.size());
+        trie.remove("tester");
+        assertEquals(0, trie.size());
+        assertEquals(List.of(), labels(root(trie)));
+        assertEquals(List.of(), trie.topK("", 5));
+    }
+    
+    @Test
+    void matchesModelUnderRandomPutsAndRemoves() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            PrefixTrie<String> trie = new PrefixTrie<>();
+            Map<String, Long> model = new TreeMap<>();
+            for (int step = 0; step < 2000; step++) {
+                String key = randomKey(random);
+                if (random.nextInt(3) == 0) {
+                    trie.remove(key);
+                    model.remove(key);
+                } else {
+                    // Distinct weights, so the expected order has no ties
+                    long weight = random.nextInt(1000) * 10_000L + step;
+                    trie.put(key, key, weight);
+                    model.put(key, weight);
+                }
+                if (step % 100 == 99) {
+                    assertMatches(model, trie, random);
+                }
+            }
+            assertMatches(model, trie, random);
+        }
+    }
+    
+    private static void assertMatches(Map<String, Long> model, PrefixTrie<String> trie, Random random) {
+        assertEquals(model.size(), trie.size());
+        for (int i = 0; i < 20; i++) {
+            String prefix = randomKey(random).substring(0, random.nextInt(3));
+            int k = 1 + random.nextInt(10);
+            List<String> expected = model.keySet().stream()
+                    .filter(key -> key.startsWith(prefix))
+                    .sorted(Comparator.comparing(model::get).reversed())
+                    .limit(k)
+                    .toList();
+            assertEquals(expected, trie.topK(prefix, k), "prefix " + prefix);
+        }
+    }
+    
+    // Short keys over a small alphabet, so edges split and merge often
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 2 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+    
+    private static Object root(PrefixTrie<String> trie) {
+        return ReflectionTestUtils.getField(trie, "root");
+    }
+    
+    private static List<Object> children(Object node) {
+        return List.of((Object[]) ReflectionTestUtils.getField(node, "children"));
+    }
+    
+    private static List<String> labels(Object node) {
+        List<String> labels = new ArrayList<>();
+        for (Object child : children(node)) {
+            labels.add((String) ReflectionTestUtils.getField(child, "label"));
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.main.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RankedScoresTest {
+    
+    @Test
+    void ordersByScoreThenLowerId() {
+        RankedScores scores = new RankedScores();
+        scores.set(3, new BigDecimal("10"));
+        scores.set(1, new BigDecimal("5"));
+        scores.set(2, new BigDecimal("10"));
+        
+        assertEquals(List.of(new RankedScores.Ranked(1, 2, new BigDecimal("10")),
+                             new RankedScores.Ranked(2, 3, new BigDecimal("10")),
+                             new RankedScores.Ranked(3, 1, new BigDecimal("5"))), scores.range(0, 10));
+        assertEquals(2, scores.rankOf(3).rank());
+        assertNull(scores.rankOf(4));
+    }
+    
+    @Test
+    void dropsZeroScoresOnlyWhenAsked() {
+        RankedScores scores = new RankedScores();
+        scores.add(1, new BigDecimal("2.50"), true);
+        scores.add(1, new BigDecimal("-2.5"), true);
+        assertEquals(0, scores.size());
+        
+        scores.add(1, new BigDecimal("2.50"), false);
+        scores.add(1, new BigDecimal("-2.5"), false);
+        assertEquals(1, scores.size());
+        assertEquals(0, scores.rankOf(1).score().signum());
+    }
+    
+    @Test
+    void matchesSortedModelUnderRandomChanges() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            RankedScores scores = new RankedScores();
+            Map<Long, BigDecimal> model = new HashMap<>();
+            for (int step = 0; step < 2000; step++) {
+                long id = random.nextInt(300);
+                BigDecimal value = BigDecimal.valueOf(random.nextInt(41) - 20);
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        scores.set(id, value);
+                        model.put(id, value);
+                    }
+                    case 1 -> {
+                        scores.remove(id);
+                        model.remove(id);
+                    }
+                    default -> {
+                        boolean dropZero = random.nextBoolean();
+                        scores.add(id, value, dropZero);
+                        BigDecimal score = model.getOrDefault(id, BigDecimal.ZERO).add(value);
+                        if (dropZero && score.signum() == 0) {
+                            model.remove(id);
+                        } else {
+                            model.put(id, score);
+                        }
+                    }
+                }
+                if (step % 100 == 99) {
+                    assertMatches(model, scores, random);
+                }
+            }
+            assertMatches(model, scores, random);
+        }
+    }
+    
+    private static void assertMatches(Map<Long, BigDecimal> model, RankedScores scores, Random random) {
+        List<Map.Entry<Long, BigDecimal>> sorted = new ArrayList<>(model.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<Long, BigDecimal> entry) -> entry.getValue()).reversed()
+                .thenComparing(Map.Entry::getKey));
+        List<RankedScores.Ranked> expected = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            expected.add(new RankedScores.Ranked(i + 1, sorted.get(i).getKey(), sorted.get(i).getValue()));
+        }
+        
+        assertEquals(expected.size(), scores.size());
+        assertEquals(expected, scores.range(0, expected.size() + 1));
+        for (RankedScores.Ranked ranked : expected) {
+            assertEquals(ranked, scores.rankOf(ranked.id()));
+        }
+        for (long id = 0; id < 300; id++) {
+            if (!model.containsKey(id)) {
+                assertNull(scores.rankOf(id));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            int offset = random.nextInt(expected.size() + 5);
+            int limit = random.nextInt(20);
+            List<RankedScores.Ranked> page = expected.subList(Math.min(offset, expected.size()),
+                    Math.min(offset + limit, expected.size()));
+            assertEquals(page, scores.range(offset, limit));
+        }
+    }
+}
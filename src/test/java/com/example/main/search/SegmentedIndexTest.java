@@ -0,0 +1,252 @@
+package com.example.main.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedIndexTest {
+    
+    private static final long NO_CAP = Long.MAX_VALUE;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void flushedDocumentsSurviveReopen() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "spring boot transactions"));
+        index.index(document(2, "java records"));
+        index.flush(1234);
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertEquals(2, reopened.size());
+        assertEquals(1234, reopened.checkpoint());
+        assertEquals(List.of(1L), ids(reopened.search("transactions", 10)));
+        assertArrayEquals(new long[] {1, 2}, reopened.documentIds());
+    }
+    
+    @Test
+    void readsSegmentSpanningSeveralWindows() throws IOException {
+        Path path = directory.resolve("segment-000000000001.seg");
+        try (SegmentWriter writer = new SegmentWriter(path, 1)) {
+            for (int id = 1; id <= 2000; id++) {
+                writer.addDocument(id, id % 7 + 1);
+            }
+            for (int term = 0; term < 300; term++) {
+                writer.startTerm(String.format("term%05d", term));
+                for (int id = 1; id <= 20; id++) {
+                    writer.addPosting(term * 20L + id, term % 5 + 1, id % 7 + 1);
+                }
+                writer.endTerm();
+            }
+            writer.commit();
+        }
+        
+        Segment segment = Segment.open(path, 4096);
+        assertTrue(segment.sizeInBytes() > 10 * 4096);
+        assertEquals(2000, segment.documentCount());
+        assertEquals(1999, segment.documentId(1998));
+        assertEquals(1999 % 7 + 1, segment.documentLength(1998));
+        assertEquals(300, segment.termCount());
+        int term = segment.findTerm("term00257");
+        assertEquals(257, term);
+        assertEquals(20, segment.documentFrequency(term));
+        long[] first = new long[2];
+        segment.forEachPosting(term, (questionId, frequency, length) -> {
+            if (first[0] == 0) {
+                first[0] = questionId;
+                first[1] = frequency;
+            }
+        });
+        assertEquals(257 * 20 + 1, first[0]);
+        assertEquals(257 % 5 + 1, first[1]);
+    }
+    
+    @Test
+    void mergesOnlySimilarSizedRuns() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        for (int id = 1; id <= 4; id++) {
+            index.index(document(id, "question number " + id));
+            index.flush(0);
+        }
+        assertEquals(1, index.merge(4, NO_CAP));
+        assertEquals(1, index.segmentCount());
+        
+        // One small segment next to the merged one is not worth rewriting the big one for
+        index.index(document(5, "question number five"));
+        index.flush(0);
+        assertEquals(0, index.merge(2, NO_CAP));
+        assertEquals(2, index.segmentCount());
+        assertEquals(5, index.size());
+    }
+    
+    @Test
+    void respectsSegmentSizeCap() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        for (int id = 1; id <= 4; id++) {
+            index.index(document(id, "question number " + id));
+            index.flush(0);
+        }
+        assertEquals(0, index.merge(4, 64));
+        assertEquals(4, index.segmentCount());
+    }
+    
+    @Test
+    void mergeKeepsOnDiskCopyWhileNewerVersionIsOnlyInMemory() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "alpha"));
+        index.flush(0);
+        index.index(document(2, "bravo"));
+        index.flush(0);
+        
+        // The newer version never reaches disk before the crash
+        index.index(document(1, "charlie"));
+        assertEquals(1, index.merge(2, NO_CAP));
+        assertEquals(List.of(1L), ids(index.search("charlie", 10)));
+        assertEquals(List.of(), ids(index.search("alpha", 10)));
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertEquals(2, reopened.size());
+        assertEquals(List.of(1L), ids(reopened.search("alpha", 10)));
+    }
+    
+    @Test
+    void mergeDropsCopiesSupersededOnDisk() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "alpha"));
+        index.flush(0);
+        index.index(document(1, "bravo"));
+        index.flush(0);
+        index.index(document(2, "delta"));
+        index.flush(0);
+        assertEquals(1, index.merge(3, NO_CAP));
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertEquals(1, reopened.segmentCount());
+        assertEquals(List.of(1L), ids(reopened.search("bravo", 10)));
+        assertEquals(List.of(), ids(reopened.search("alpha", 10)));
+        assertEquals(2, onlySegment().documentCount());
+    }
+    
+    @Test
+    void partialMergeKeepsTombstonesForOlderSegments() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "deleted later"));
+        index.index(document(2, "kept around"));
+        index.index(document(3, "also kept"));
+        index.flush(0);
+        index.remove(1);
+        index.index(document(5, "five"));
+        index.flush(0);
+        index.index(document(6, "sixx"));
+        index.flush(0);
+        index.index(document(7, "seve"));
+        index.flush(0);
+        
+        // The first segment is too big to join; the merged run must keep hiding question 1 in it
+        assertEquals(1, index.merge(3, NO_CAP));
+        assertEquals(2, index.segmentCount());
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertArrayEquals(new long[] {2, 3, 5, 6, 7}, reopened.documentIds());
+        assertEquals(List.of(), ids(reopened.search("deleted", 10)));
+    }
+    
+    @Test
+    void fullMergeDropsTombstonesAndDeletedDocuments() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "alpha"));
+        index.flush(0);
+        index.index(document(2, "bravo"));
+        index.flush(0);
+        index.index(document(3, "delta"));
+        index.remove(1);
+        index.flush(0);
+        assertEquals(1, index.merge(3, NO_CAP));
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertEquals(1, reopened.segmentCount());
+        assertArrayEquals(new long[] {2, 3}, reopened.documentIds());
+        assertEquals(List.of(), ids(reopened.search("alpha", 10)));
+        Segment merged = onlySegment();
+        assertEquals(2, merged.documentCount());
+        assertEquals(0, merged.deleteCount());
+    }
+    
+    @Test
+    void expungesMostlyStaleSegment() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        for (int id = 1; id <= 4; id++) {
+            index.index(document(id, "question number " + id));
+        }
+        index.flush(0);
+        index.remove(1);
+        index.remove(2);
+        index.remove(3);
+        index.flush(0);
+        
+        // Too few segments for a merge, so the stale one is rewritten on its own
+        assertEquals(1, index.merge(3, NO_CAP));
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertArrayEquals(new long[] {4}, reopened.documentIds());
+        assertEquals(1, Segment.open(directory.resolve("segment-000000000001.seg")).documentCount());
+    }
+    
+    @Test
+    void loadDeletesSourcesOfCompletedMerge() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.index(document(1, "alpha"));
+        index.flush(0);
+        index.index(document(2, "bravo"));
+        index.flush(0);
+        
+        // A crash between writing a merged segment and deleting its sources leaves both behind
+        Path source = directory.resolve("segment-000000000001.seg");
+        byte[] sourceBytes = Files.readAllBytes(source);
+        index.merge(2, NO_CAP);
+        Files.write(source, sourceBytes);
+        
+        SegmentedIndex reopened = SegmentedIndex.open(directory);
+        assertEquals(1, reopened.segmentCount());
+        assertFalse(Files.exists(source));
+        assertArrayEquals(new long[] {1, 2}, reopened.documentIds());
+        assertEquals(List.of(1L), ids(reopened.search("alpha", 10)));
+    }
+    
+    @Test
+    void flushWithoutChangesAdvancesCheckpoint() throws IOException {
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        index.flush(500);
+        assertEquals(500, SegmentedIndex.open(directory).checkpoint());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("CHECKPOINT"), files.map(file -> file.getFileName().toString()).collect(Collectors.toList()));
+        }
+    }
+    
+    private Segment onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(file -> file.toString().endsWith(".seg")).collect(Collectors.toList());
+            assertEquals(1, segments.size());
+            return Segment.open(segments.get(0));
+        }
+    }
+    
+    private static QuestionDocument document(long questionId, String title) {
+        return new QuestionDocument(questionId, title, "", List.of(), List.of());
+    }
+    
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::questionId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.main.service;
+
+import com.example.main.model.OutboxMessage;
+import com.example.main.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+    
+    private final OutboxMessageRepository repository = mock(OutboxMessageRepository.class);
+    private final StubTransport transport = new StubTransport();
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher();
+    private final List<OutboxMessage> claimed = new ArrayList<>();
+    
+    // Records what was sent; fails or hangs for the ids it is told to
+    private static class StubTransport implements NotificationTransport {
+        
+        final Set<Long> sent = ConcurrentHashMap.newKeySet();
+        final Set<Long> failing = ConcurrentHashMap.newKeySet();
+        final Set<Long> hanging = ConcurrentHashMap.newKeySet();
+        
+        @Override
+        public void send(OutboxMessage message) throws Exception {
+            if (hanging.contains(message.getMessageId())) {
+                Thread.sleep(60_000);
+            }
+            if (failing.contains(message.getMessageId())) {
+                throw new IllegalStateException("provider down");
+            }
+            sent.add(message.getMessageId());
+        }
+    }
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "outboxMessageRepository", repository);
+        ReflectionTestUtils.setField(dispatcher, "notificationTransport", transport);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "backoffMillis", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMillis", 3_600_000L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutSeconds", 1L);
+        when(repository.findByClaimToken(anyString())).thenReturn(claimed);
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+    
+    @Test
+    void recordsResultsUnderTheClaimToken() {
+        due(message(1, 0), message(2, 0));
+        transport.failing.add(2L);
+        
+        assertEquals(2, dispatcher.dispatchBatch());
+        
+        String token = claimToken();
+        assertEquals(Set.of(1L), transport.sent);
+        verify(repository).markSent(eq(List.of(1L)), eq(token), any());
+        verify(repository).markFailed(eq(2L), eq(token), eq("pending"), any(), startsWith("IllegalStateException"));
+    }
+    
+    @Test
+    void givesUpAfterMaxAttempts() {
+        due(message(1, 7));
+        transport.failing.add(1L);
+        
+        dispatcher.dispatchBatch();
+        
+        String token = claimToken();
+        verify(repository).markFailed(eq(1L), eq(token), eq("failed"), any(), anyString());
+        verify(repository, never()).markSent(anyCollection(), anyString(), any());
+    }
+    
+    @Test
+    void cancelsSendsThatOutliveTheTimeout() {
+        due(message(1, 0), message(2, 0));
+        transport.hanging.add(1L);
+        
+        long started = System.nanoTime();
+        dispatcher.dispatchBatch();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        
+        // Well inside the 60 s lease, so the claim is still ours when the results are written
+        assertTrue(elapsedMillis < 10_000, "took " + elapsedMillis + " ms");
+        String token = claimToken();
+        verify(repository).markSent(eq(List.of(2L)), eq(token), any());
+        verify(repository).markFailed(eq(1L), eq(token), eq("pending"), any(), eq("Timed out"));
+    }
+    
+    private void due(OutboxMessage... messages) {
+        List<Long> ids = new ArrayList<>();
+        for (OutboxMessage message : messages) {
+            ids.add(message.getMessageId());
+        }
+        Collections.addAll(claimed, messages);
+        when(repository.findDueIds(any(), any())).thenReturn(ids);
+    }
+    
+    private String claimToken() {
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(repository).claim(anyCollection(), token.capture(), any(), any());
+        verify(repository).findByClaimToken(token.getValue());
+        return token.getValue();
+    }
+    
+    private static OutboxMessage message(long id, int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setMessageId(id);
+        message.setChannel("email");
+        message.setRecipient("user" + id + "@example.com");
+        message.setSubject("Subject");
+        message.setBody("Body");
+        message.setStatus("pending");
+        message.setAttempts(attempts);
+        return message;
+    }
+}
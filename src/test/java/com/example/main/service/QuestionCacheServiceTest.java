@@ -0,0 +1,155 @@
+package com.example.main.service;
+
+import com.example.main.dto.AnswerDto;
+import com.example.main.dto.QuestionDto;
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
+import com.example.main.service.QuestionCacheService.VoteCounts;
+import com.example.main.service.QuestionPageService.SerializedPage;
+import com.example.main.service.QuestionVersionService.VersionStamp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QuestionCacheServiceTest {
+    
+    private final QuestionCacheService cache = new QuestionCacheService();
+    private final AtomicInteger questionLoads = new AtomicInteger();
+    private final AtomicInteger answerLoads = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "questionsMaxWeight", 1L << 20);
+        ReflectionTestUtils.setField(cache, "answersMaxWeight", 1L << 20);
+        ReflectionTestUtils.setField(cache, "pagesMaxWeight", 1L << 20);
+        ReflectionTestUtils.setField(cache, "versionsMaxSize", 100L);
+        cache.init();
+    }
+    
+    @Test
+    void voteRefreshesEntriesWithoutReload() {
+        QuestionDto loaded = getQuestion(1);
+        getAnswers(1);
+        
+        cache.onQuestionChanged(new QuestionChangedEvent(7L, Change.VOTES));
+        cache.refreshVoteCounts(7L, 2, new VoteCounts(7, 5, 1), null);
+        
+        QuestionDto refreshed = getQuestion(2);
+        assertEquals(5, refreshed.getUpvotes());
+        assertEquals(1, refreshed.getDownvotes());
+        assertEquals(loaded.getTitle(), refreshed.getTitle());
+        assertEquals(2, getAnswers(2).size());
+        assertEquals(1, questionLoads.get());
+        assertEquals(1, answerLoads.get());
+        // The shared DTO handed out before is left as it was
+        assertEquals(0, loaded.getUpvotes());
+    }
+    
+    @Test
+    void answerVoteReordersAnswersWithoutReload() {
+        List<AnswerDto> loaded = getAnswers(1);
+        assertEquals(List.of(10L, 11L), List.of(loaded.get(0).getAnswerId(), loaded.get(1).getAnswerId()));
+        
+        cache.onQuestionChanged(new QuestionChangedEvent(7L, Change.ANSWER_VOTES, 11L));
+        cache.refreshVoteCounts(7L, 2, null, List.of(new VoteCounts(11, 4, 0)));
+        
+        List<AnswerDto> refreshed = getAnswers(2);
+        assertEquals(List.of(11L, 10L), List.of(refreshed.get(0).getAnswerId(), refreshed.get(1).getAnswerId()));
+        assertEquals(4, refreshed.get(0).getUpvotes());
+        assertSame(loaded.get(0), refreshed.get(1));
+        assertEquals(1, answerLoads.get());
+        assertEquals(0, getQuestion(2).getUpvotes());
+        assertEquals(1, questionLoads.get());
+    }
+    
+    @Test
+    void entriesFromOlderVersionsAreReloaded() {
+        getQuestion(1);
+        // Version 2 was some other change this refresh knows nothing about
+        cache.refreshVoteCounts(7L, 3, new VoteCounts(7, 5, 1), null);
+        
+        getQuestion(3);
+        assertEquals(2, questionLoads.get());
+    }
+    
+    @Test
+    void contentChangeStillReloads() {
+        getQuestion(1);
+        getAnswers(1);
+        cache.onQuestionChanged(new QuestionChangedEvent(7L, Change.CONTENT));
+        
+        getQuestion(2);
+        getAnswers(2);
+        assertEquals(2, questionLoads.get());
+        assertEquals(2, answerLoads.get());
+    }
+    
+    @Test
+    void entryServesItsOwnStampAndOlderOnes() {
+        getQuestion(2);
+        getQuestion(1);
+        getQuestion(2);
+        assertEquals(1, questionLoads.get());
+        
+        getQuestion(3);
+        assertEquals(2, questionLoads.get());
+        
+        // A rename moves the epoch, so even the same version reloads
+        cache.invalidateAll();
+        getQuestion(3);
+        assertEquals(3, questionLoads.get());
+    }
+    
+    @Test
+    void pageIsRebuiltForANewerStamp() {
+        AtomicInteger pageLoads = new AtomicInteger();
+        for (long version : new long[] {1, 1, 2}) {
+            cache.getPage(7L, stamp(version), id -> {
+                pageLoads.incrementAndGet();
+                return new SerializedPage(new byte[0], new byte[0]);
+            });
+        }
+        assertEquals(2, pageLoads.get());
+    }
+    
+    private QuestionDto getQuestion(long version) {
+        return cache.getQuestion(7L, stamp(version), id -> {
+            questionLoads.incrementAndGet();
+            QuestionDto question = new QuestionDto();
+            question.setQuestionId(id);
+            question.setTitle("title");
+            return question;
+        });
+    }
+    
+    // Answer 10 leads with one upvote until answer 11 overtakes it
+    private List<AnswerDto> getAnswers(long version) {
+        return cache.getAnswers(7L, stamp(version), id -> {
+            answerLoads.incrementAndGet();
+            return List.of(answer(10, 1, LocalDateTime.of(2024, 1, 1, 0, 0)),
+                           answer(11, 0, LocalDateTime.of(2024, 1, 2, 0, 0)));
+        });
+    }
+    
+    private VersionStamp stamp(long version) {
+        return new VersionStamp(version, cache.epochMillis(), null);
+    }
+    
+    private static AnswerDto answer(long answerId, int upvotes, LocalDateTime createdAt) {
+        AnswerDto answer = new AnswerDto();
+        answer.setAnswerId(answerId);
+        answer.setQuestionId(7L);
+        answer.setUpvotes(upvotes);
+        answer.setCreatedAt(createdAt);
+        return answer;
+    }
+}
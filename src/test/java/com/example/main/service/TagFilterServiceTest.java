@@ -0,0 +1,84 @@
+package com.example.main.service;
+
+import com.example.main.event.QuestionChangedEvent;
+import com.example.main.event.QuestionChangedEvent.Change;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.QuestionRepository.QuestionTagRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagFilterServiceTest {
+    
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private final TagFilterService tagFilterService = new TagFilterService();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tagFilterService, "questionRepository", questionRepository);
+        when(questionRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L, 3L));
+        when(questionRepository.existsById(anyLong())).thenReturn(true);
+    }
+    
+    @Test
+    void eventsDuringLoadAreNotUndoneByTheOlderChunk() {
+        // Question 1 moves from tag 5 to tag 6 and question 2 is deleted while load reads its chunk
+        when(questionRepository.findTagsByQuestionIds(List.of(1L))).thenReturn(List.of(row(1, 6)));
+        when(questionRepository.findTagsByQuestionIds(List.of(1L, 2L, 3L))).thenAnswer(call -> {
+            tagFilterService.onQuestionChanged(new QuestionChangedEvent(1L, Change.CONTENT));
+            tagFilterService.onQuestionChanged(new QuestionChangedEvent(2L, Change.DELETED));
+            return List.of(row(1, 5), row(2, 5), row(3, 5));
+        });
+        tagFilterService.load();
+        
+        assertEquals(List.of(3L), find(List.of(5L), List.of()));
+        assertEquals(List.of(1L), find(List.of(6L), List.of()));
+        assertEquals(List.of(3L, 1L), find(List.of(), List.of()));
+    }
+    
+    @Test
+    void eventsAfterLoadStillApply() {
+        when(questionRepository.findTagsByQuestionIds(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(row(1, 5), row(2, 5), row(2, 6), row(3, 6)));
+        tagFilterService.load();
+        assertEquals(List.of(2L), find(List.of(5L, 6L), List.of()));
+        
+        when(questionRepository.findTagsByQuestionIds(List.of(2L))).thenReturn(List.of(row(2, 6)));
+        tagFilterService.onQuestionChanged(new QuestionChangedEvent(2L, Change.CONTENT));
+        assertEquals(List.of(1L), find(List.of(5L), List.of()));
+        assertEquals(List.of(3L, 2L), find(List.of(6L), List.of()));
+        assertEquals(List.of(1L), find(List.of(), List.of(6L)));
+    }
+    
+    private List<Long> find(List<Long> allTagIds, List<Long> noneTagIds) {
+        return tagFilterService.findQuestionIds(allTagIds, List.of(), noneTagIds, Long.MAX_VALUE, 10);
+    }
+    
+    private static QuestionTagRow row(long questionId, long tagId) {
+        return new QuestionTagRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+            
+            @Override
+            public Long getTagId() {
+                return tagId;
+            }
+            
+            @Override
+            public String getName() {
+                return "tag" + tagId;
+            }
+        };
+    }
+}
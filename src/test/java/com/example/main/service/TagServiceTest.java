@@ -0,0 +1,126 @@
+package com.example.main.service;
+
+import com.example.main.model.Tag;
+import com.example.main.repository.TagRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagServiceTest {
+    
+    private final TagRepository tagRepository = mock(TagRepository.class);
+    private final TagDictionaryService dictionary = new TagDictionaryService();
+    private final TagService tagService = new TagService();
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    
+    // save blocks until released, so concurrent creators pile up behind the first insert
+    private final CountDownLatch insertStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseInsert = new CountDownLatch(1);
+    private final AtomicInteger inserts = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dictionary, "tagRepository", tagRepository);
+        ReflectionTestUtils.setField(tagService, "tagRepository", tagRepository);
+        ReflectionTestUtils.setField(tagService, "tagDictionaryService", dictionary);
+        ReflectionTestUtils.setField(tagService, "suggestionService", mock(SuggestionService.class));
+        ReflectionTestUtils.setField(tagService, "createTimeoutMs", 5000L);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+    
+    @Test
+    void concurrentCreatorsShareOneInsert() throws Exception {
+        when(tagRepository.save(any(Tag.class))).thenAnswer(call -> {
+            insertStarted.countDown();
+            assertTrue(releaseInsert.await(5, TimeUnit.SECONDS));
+            inserts.incrementAndGet();
+            Tag tag = call.getArgument(0);
+            tag.setTagId(42L);
+            return tag;
+        });
+        
+        Future<List<Long>> first = pool.submit(() -> tagService.findOrCreateTagIds(List.of("Kotlin")));
+        assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        List<Future<List<Long>>> others = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // Names differing only in case are the same tag
+            String name = i % 2 == 0 ? "kotlin" : "KOTLIN";
+            others.add(pool.submit(() -> tagService.findOrCreateTagIds(List.of(name))));
+        }
+        Thread.sleep(100);
+        releaseInsert.countDown();
+        
+        assertEquals(List.of(42L), first.get(5, TimeUnit.SECONDS));
+        for (Future<List<Long>> other : others) {
+            assertEquals(List.of(42L), other.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, inserts.get());
+    }
+    
+    @Test
+    void failedInsertReachesWaitersAndIsRetriedLater() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+        when(tagRepository.save(any(Tag.class))).thenAnswer(call -> {
+            insertStarted.countDown();
+            assertTrue(releaseInsert.await(5, TimeUnit.SECONDS));
+            if (inserts.incrementAndGet() == 1) {
+                throw failure;
+            }
+            Tag tag = call.getArgument(0);
+            tag.setTagId(7L);
+            return tag;
+        });
+        
+        Future<List<Long>> first = pool.submit(() -> tagService.findOrCreateTagIds(List.of("rust")));
+        assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        Future<List<Long>> waiter = pool.submit(() -> tagService.findOrCreateTagIds(List.of("rust")));
+        Thread.sleep(100);
+        releaseInsert.countDown();
+        
+        assertSame(failure, assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        // A waiter that had joined the flight gets the same failure; one that came too late inserts itself
+        try {
+            assertEquals(List.of(7L), waiter.get(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(List.of(7L), tagService.findOrCreateTagIds(List.of("rust")));
+    }
+    
+    @Test
+    void nameCreatedByAnotherInstanceIsReadBack() {
+        when(tagRepository.save(any(Tag.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+        Tag committed = new Tag();
+        committed.setTagId(9L);
+        committed.setName("Go");
+        when(tagRepository.findByName("go")).thenReturn(Optional.of(committed));
+        
+        assertEquals(List.of(9L), tagService.findOrCreateTagIds(List.of("go")));
+        // And is known from then on
+        assertEquals(9L, dictionary.peek("GO"));
+    }
+}
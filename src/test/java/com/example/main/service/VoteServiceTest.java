@@ -0,0 +1,189 @@
+package com.example.main.service;
+
+import com.example.main.dto.VoteBatchResultDto;
+import com.example.main.dto.VoteDto;
+import com.example.main.model.Answer;
+import com.example.main.model.Question;
+import com.example.main.model.User;
+import com.example.main.model.Vote;
+import com.example.main.repository.AnswerRepository;
+import com.example.main.repository.QuestionRepository;
+import com.example.main.repository.UserRepository;
+import com.example.main.repository.VoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoteServiceTest {
+    
+    private final VoteRepository voteRepository = mock(VoteRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private final AnswerRepository answerRepository = mock(AnswerRepository.class);
+    private final ScoreService scoreService = mock(ScoreService.class);
+    private final VoteService voteService = new VoteService();
+    
+    // User 1 votes; user 2 wrote questions 10 to 12 and answer 20 on question 10
+    private final Map<Long, User> users = new HashMap<>();
+    private final Map<Long, Question> questions = new HashMap<>();
+    private final Map<Long, Answer> answers = new HashMap<>();
+    private final List<Vote> existingVotes = new ArrayList<>();
+    private final Map<Long, BigDecimal> scores = new HashMap<>();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(voteService, "voteRepository", voteRepository);
+        ReflectionTestUtils.setField(voteService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(voteService, "questionRepository", questionRepository);
+        ReflectionTestUtils.setField(voteService, "answerRepository", answerRepository);
+        ReflectionTestUtils.setField(voteService, "scoreService", scoreService);
+        ReflectionTestUtils.setField(voteService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(voteService, "maxBatchSize", 10);
+        
+        for (long userId = 1; userId <= 3; userId++) {
+            User user = new User();
+            user.setUserId(userId);
+            users.put(userId, user);
+        }
+        for (long questionId = 10; questionId <= 12; questionId++) {
+            Question question = new Question();
+            question.setQuestionId(questionId);
+            question.setAuthor(users.get(2L));
+            questions.put(questionId, question);
+        }
+        Answer answer = new Answer();
+        answer.setAnswerId(20L);
+        answer.setAuthor(users.get(2L));
+        answer.setQuestion(questions.get(10L));
+        answers.put(20L, answer);
+        
+        when(userRepository.findAllById(any())).thenAnswer(call -> pick(users, call.getArgument(0)));
+        when(questionRepository.findAllById(any())).thenAnswer(call -> pick(questions, call.getArgument(0)));
+        when(answerRepository.findAllById(any())).thenAnswer(call -> pick(answers, call.getArgument(0)));
+        when(voteRepository.findQuestionVotes(anyCollection(), anyCollection())).thenAnswer(call ->
+                existingVotes.stream().filter(vote -> vote.getQuestion() != null).toList());
+        when(voteRepository.findAnswerVotes(anyCollection(), anyCollection())).thenAnswer(call ->
+                existingVotes.stream().filter(vote -> vote.getAnswer() != null).toList());
+        doAnswer(call -> {
+            scores.merge(call.getArgument(0), call.getArgument(1), BigDecimal::add);
+            return null;
+        }).when(scoreService).addScore(anyLong(), any());
+    }
+    
+    @Test
+    void itemsToggleInOrderAndCountsAreNetted() {
+        List<VoteBatchResultDto> results = voteService.voteBatch(1L, List.of(
+                item(1L, 10L, null, "upvote"),
+                item(1L, 10L, null, "upvote"),
+                item(1L, 10L, null, "downvote")));
+        
+        assertEquals(List.of("voted", "removed", "voted"), statuses(results));
+        assertEquals("downvote", results.get(2).getVote().getVoteType());
+        // Up, back to nothing, then down: only the downvote is left in the counts and the scores
+        verify(questionRepository).adjustVoteCounts(10L, 0, 1);
+        assertEquals(0, new BigDecimal("-1.5").compareTo(scores.get(2L)));
+        assertEquals(0, new BigDecimal("-1.5").compareTo(scores.get(1L)));
+        verify(voteRepository, times(1)).delete(any(Vote.class));
+    }
+    
+    @Test
+    void existingVoteFlipsAndFlipsBack() {
+        Vote existing = new Vote();
+        existing.setVoteId(5L);
+        existing.setUser(users.get(1L));
+        existing.setAnswer(answers.get(20L));
+        existing.setVoteType("upvote");
+        existingVotes.add(existing);
+        
+        List<VoteBatchResultDto> results = voteService.voteBatch(1L, List.of(
+                item(1L, null, 20L, "downvote"),
+                item(1L, null, 20L, "downvote")));
+        
+        assertEquals(List.of("voted", "removed"), statuses(results));
+        verify(answerRepository).adjustVoteCounts(20L, -1, 0);
+        verify(voteRepository).delete(existing);
+        assertEquals(0, new BigDecimal("-5.0").compareTo(scores.get(2L)));
+        assertEquals(0, scores.getOrDefault(1L, BigDecimal.ZERO).signum());
+    }
+    
+    @Test
+    void countRowsAreUpdatedInIdOrder() {
+        voteService.voteBatch(1L, List.of(
+                item(1L, 12L, null, "upvote"),
+                item(1L, 10L, null, "upvote"),
+                item(1L, 11L, null, "downvote")));
+        
+        InOrder order = inOrder(questionRepository);
+        order.verify(questionRepository).adjustVoteCounts(10L, 1, 0);
+        order.verify(questionRepository).adjustVoteCounts(11L, 0, 1);
+        order.verify(questionRepository).adjustVoteCounts(12L, 1, 0);
+    }
+    
+    @Test
+    void rejectsItemsForOtherUsersAndOwnPosts() {
+        List<VoteBatchResultDto> results = voteService.voteBatch(1L, List.of(
+                item(3L, 10L, null, "upvote"),
+                item(1L, 10L, null, "upvote")));
+        assertEquals(List.of("rejected", "voted"), statuses(results));
+        assertEquals("Votes can only be cast as the calling user", results.get(0).getError());
+        // The other user is not even loaded
+        verify(userRepository).findAllById(Set.of(1L));
+        verify(questionRepository).adjustVoteCounts(10L, 1, 0);
+        
+        List<VoteBatchResultDto> own = voteService.voteBatch(2L, List.of(item(2L, 11L, null, "upvote")));
+        assertEquals(List.of("rejected"), statuses(own));
+        verify(questionRepository, never()).adjustVoteCounts(eq(11L), anyInt(), anyInt());
+        
+        assertThrows(IllegalArgumentException.class, () -> voteService.voteBatch(1L,
+                Collections.nCopies(11, item(1L, 10L, null, "upvote"))));
+    }
+    
+    private static <T> List<T> pick(Map<Long, T> entities, Iterable<Long> ids) {
+        List<T> picked = new ArrayList<>();
+        for (Long id : ids) {
+            if (entities.containsKey(id)) {
+                picked.add(entities.get(id));
+            }
+        }
+        return picked;
+    }
+    
+    private static List<String> statuses(Collection<VoteBatchResultDto> results) {
+        return results.stream().map(VoteBatchResultDto::getStatus).toList();
+    }
+    
+    private static VoteDto item(Long userId, Long questionId, Long answerId, String voteType) {
+        VoteDto item = new VoteDto();
+        item.setUserId(userId);
+        item.setQuestionId(questionId);
+        item.setAnswerId(answerId);
+        item.setVoteType(voteType);
+        return item;
+    }
+}